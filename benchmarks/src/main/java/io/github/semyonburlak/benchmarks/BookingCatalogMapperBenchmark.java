@@ -0,0 +1,55 @@
+package io.github.semyonburlak.benchmarks;
+
+import io.github.semyonburlak.dto.CategoryDto;
+import io.github.semyonburlak.dto.MasterDto;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiServicesData;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiSlotsData;
+import io.github.semyonburlak.wrapper.mapper.BookingCatalogMapper;
+import io.github.semyonburlak.wrapper.util.ResponseParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingCatalogMapperBenchmark {
+
+    private BookingCatalogMapper mapper;
+    private DikidiServicesData services;
+    private DikidiSlotsData slots;
+
+    @Setup
+    public void setUp() {
+        ResponseParser parser = new ResponseParser(Payloads.objectMapper());
+        mapper = new BookingCatalogMapper();
+        services = parser.parseBody(Payloads.companyServices(12, 10), DikidiServicesData.class).data();
+        slots = parser.parseBody(Payloads.datetimes(LocalDate.of(2024, 1, 15), 8, 24), DikidiSlotsData.class).data();
+    }
+
+    @Benchmark
+    public Map<LocalDateTime, List<MasterDto>> toTimeMap() {
+        return mapper.toTimeMap(slots);
+    }
+
+    @Benchmark
+    public List<CategoryDto> toCategoryDtoList() {
+        return mapper.toCategoryDtoList(services);
+    }
+}
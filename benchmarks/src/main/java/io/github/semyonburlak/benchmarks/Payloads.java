@@ -0,0 +1,68 @@
+package io.github.semyonburlak.benchmarks;
+
+import io.github.semyonburlak.wrapper.config.ClientConfig;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.StringJoiner;
+
+final class Payloads {
+
+    static final String DATE_PATTERN = "yyyy-MM-dd";
+    static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern(DATE_TIME_PATTERN);
+
+    private Payloads() {
+    }
+
+    static ObjectMapper objectMapper() {
+        return new ClientConfig(null).objectMapper(DATE_PATTERN, DATE_TIME_PATTERN);
+    }
+
+    static byte[] companyServices(int categories, int servicesPerCategory) {
+        StringJoiner list = new StringJoiner(",", "{", "}");
+        for (int c = 1; c <= categories; c++) {
+            StringJoiner services = new StringJoiner(",", "[", "]");
+            for (int s = 1; s <= servicesPerCategory; s++) {
+                long id = c * 1000L + s;
+                services.add("""
+                        {"id":%d,"name":"Service %d","price":"%d","time":60,"image":null}"""
+                        .formatted(id, id, 500 + s * 100));
+            }
+            list.add("""
+                    "%d":{"id":%d,"name":"Category %d","services":%s}""".formatted(c, c, c, services));
+        }
+        return utf8("""
+                {"error":{"code":0,"message":""},"data":{"list":%s,"company_id":1}}""".formatted(list));
+    }
+
+    static byte[] datetimes(LocalDate date, int masters, int slotsPerMaster) {
+        StringJoiner masterJson = new StringJoiner(",", "{", "}");
+        StringJoiner timesJson = new StringJoiner(",", "{", "}");
+        for (int m = 1; m <= masters; m++) {
+            masterJson.add("""
+                    "%d":{"id":%d,"username":"Master %d","post":"Stylist","image":null}""".formatted(m, m, m));
+            StringJoiner slots = new StringJoiner(",", "[", "]");
+            for (int s = 0; s < slotsPerMaster; s++) {
+                slots.add('"' + date.atTime(LocalTime.of(9, 0).plusMinutes(20L * s)).format(SLOT_FORMAT) + '"');
+            }
+            timesJson.add("\"%d\":%s".formatted(m, slots));
+        }
+        return utf8("""
+                {"error":{"code":0,"message":""},"data":{"masters":%s,"times":%s,"date_near":"%s"}}"""
+                .formatted(masterJson, timesJson, date));
+    }
+
+    static byte[] error() {
+        return utf8("""
+                {"error":{"code":400,"message":"Company not found"},"data":[]}""");
+    }
+
+    private static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
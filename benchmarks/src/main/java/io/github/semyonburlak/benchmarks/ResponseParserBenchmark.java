@@ -0,0 +1,69 @@
+package io.github.semyonburlak.benchmarks;
+
+import io.github.semyonburlak.wrapper.dto.DikidiResult;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiServicesData;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiSlotsData;
+import io.github.semyonburlak.wrapper.util.ResponseParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParserBenchmark {
+
+    @Param({"company_services", "get_datetimes", "error"})
+    private String payload;
+
+    private ObjectMapper objectMapper;
+    private ResponseParser parser;
+    private byte[] body;
+    private Class<?> dataType;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Payloads.objectMapper();
+        parser = new ResponseParser(objectMapper);
+        switch (payload) {
+            case "company_services" -> {
+                body = Payloads.companyServices(12, 10);
+                dataType = DikidiServicesData.class;
+            }
+            case "get_datetimes" -> {
+                body = Payloads.datetimes(LocalDate.of(2024, 1, 15), 8, 24);
+                dataType = DikidiSlotsData.class;
+            }
+            case "error" -> {
+                body = Payloads.error();
+                dataType = DikidiSlotsData.class;
+            }
+            default -> throw new IllegalArgumentException(payload);
+        }
+    }
+
+    @Benchmark
+    public DikidiResult<?> parseTree() {
+        return parser.parse(objectMapper.readTree(body), dataType);
+    }
+
+    @Benchmark
+    public DikidiResult<?> parseBody() {
+        return parser.parseBody(body, dataType);
+    }
+}
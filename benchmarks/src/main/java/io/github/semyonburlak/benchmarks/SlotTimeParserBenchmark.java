@@ -0,0 +1,64 @@
+package io.github.semyonburlak.benchmarks;
+
+import io.github.semyonburlak.wrapper.util.SlotTimeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class SlotTimeParserBenchmark {
+
+    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int SIZE = 1024;
+
+    private final String[] dateTimes = new String[SIZE];
+    private final String[] dates = new String[SIZE];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 15, 8, 0);
+        for (int i = 0; i < SIZE; i++) {
+            LocalDateTime slot = start.plusMinutes(i * 137L);
+            dateTimes[i] = SLOT_FORMAT.format(slot);
+            dates[i] = slot.toLocalDate().toString();
+        }
+    }
+
+    @Benchmark
+    public LocalDateTime formatterDateTime() {
+        return LocalDateTime.parse(dateTimes[next++ & (SIZE - 1)], SLOT_FORMAT);
+    }
+
+    @Benchmark
+    public int parserDateTime() {
+        return SlotTimeParser.parseEpochMinute(dateTimes[next++ & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public LocalDate formatterDate() {
+        return LocalDate.parse(dates[next++ & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public LocalDate parserDate() {
+        return SlotTimeParser.parseDate(dates[next++ & (SIZE - 1)]);
+    }
+}
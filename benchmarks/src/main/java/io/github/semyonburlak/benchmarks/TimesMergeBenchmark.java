@@ -0,0 +1,74 @@
+package io.github.semyonburlak.benchmarks;
+
+import io.github.semyonburlak.dto.MasterDto;
+import io.github.semyonburlak.wrapper.dto.SlotTable;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiSlotsData;
+import io.github.semyonburlak.wrapper.mapper.BookingCatalogMapper;
+import io.github.semyonburlak.wrapper.util.ResponseParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimesMergeBenchmark {
+
+    @Param({"7", "30", "180"})
+    private int days;
+
+    private List<SlotTable> perDate;
+
+    @Setup
+    public void setUp() {
+        ResponseParser parser = new ResponseParser(Payloads.objectMapper());
+        BookingCatalogMapper mapper = new BookingCatalogMapper();
+        perDate = new ArrayList<>(days);
+        LocalDate start = LocalDate.of(2024, 1, 15);
+        for (int d = 0; d < days; d++) {
+            byte[] body = Payloads.datetimes(start.plusDays(d), 8, 24);
+            perDate.add(mapper.toTimeMap(parser.parseBody(body, DikidiSlotsData.class).data()));
+        }
+    }
+
+    /**
+     * Baseline: the per-date results merged into one {@code TreeMap} of master lists, as the service did before
+     * {@link SlotTable#merge}.
+     */
+    @Benchmark
+    public Map<LocalDateTime, List<MasterDto>> mergeAll() {
+        Map<LocalDateTime, List<MasterDto>> times = new TreeMap<>();
+        perDate.forEach(dateTimes -> mergeTimeMap(times, dateTimes));
+        return times;
+    }
+
+    @Benchmark
+    public SlotTable mergeSlotTables() {
+        return SlotTable.merge(perDate, null);
+    }
+
+    private static void mergeTimeMap(
+            Map<LocalDateTime, List<MasterDto>> target, Map<LocalDateTime, List<MasterDto>> source) {
+        source.forEach((dateTime, masters) ->
+                target.computeIfAbsent(dateTime, _ -> new ArrayList<>()).addAll(masters));
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.github.semyonburlak.wrapper.config.AdaptiveLimitProps;
+import io.github.semyonburlak.wrapper.util.ResizableSemaphore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD controller for the shared upstream rate limiter: grows the per-period limit and the in-flight cap
+ * additively while a window of responses stays under the latency target, and cuts both multiplicatively on
+ * 429/5xx/IO failures or when the window's p95 exceeds the target.
+ */
+@Slf4j
+public class AdaptiveLimiter {
+
+    private final RateLimiter rateLimiter;
+    private final AdaptiveLimitProps props;
+    private final ResizableSemaphore inFlight;
+    private final long[] latencies;
+    private final long latencyTargetNanos;
+
+    private final Counter increases;
+    private final Counter decreases;
+
+    private int limit;
+    private int samples;
+    private int samplesSinceDecrease;
+
+    public AdaptiveLimiter(RateLimiter rateLimiter, AdaptiveLimitProps props, MeterRegistry registry) {
+        if (props.floor() < 1 || props.ceiling() < props.floor()) {
+            throw new IllegalArgumentException(
+                    "Adaptive limit needs 1 <= floor <= ceiling: " + props.floor() + ".." + props.ceiling());
+        }
+        if (props.decreaseFactor() <= 0 || props.decreaseFactor() >= 1) {
+            throw new IllegalArgumentException("decreaseFactor must be in (0, 1): " + props.decreaseFactor());
+        }
+        this.rateLimiter = rateLimiter;
+        this.props = props;
+        this.latencies = new long[Math.max(1, props.window())];
+        this.latencyTargetNanos = props.latencyTarget().toNanos();
+        this.samplesSinceDecrease = latencies.length;
+
+        int configured = rateLimiter.getRateLimiterConfig().getLimitForPeriod();
+        this.limit = props.enabled() ? Math.clamp(configured, props.floor(), props.ceiling()) : configured;
+        this.inFlight = new ResizableSemaphore(limit);
+        if (props.enabled() && limit != configured) {
+            rateLimiter.changeLimitForPeriod(limit);
+        }
+
+        Gauge.builder("dikidi.upstream.limit", this, AdaptiveLimiter::limit)
+                .description("Current upstream permits per rate-limiter period")
+                .tag("kind", "rate")
+                .register(registry);
+        Gauge.builder("dikidi.upstream.limit", inFlight, ResizableSemaphore::size)
+                .description("Current cap on in-flight upstream requests")
+                .tag("kind", "concurrency")
+                .register(registry);
+        Gauge.builder("dikidi.upstream.in-flight", inFlight, ResizableSemaphore::inUse)
+                .register(registry);
+        this.increases = Counter.builder("dikidi.upstream.limit.adjustments").tag("direction", "increase")
+                .register(registry);
+        this.decreases = Counter.builder("dikidi.upstream.limit.adjustments").tag("direction", "decrease")
+                .register(registry);
+    }
+
+    public void acquire() {
+        if (!props.enabled()) {
+            return;
+        }
+        long timeout = rateLimiter.getRateLimiterConfig().getTimeoutDuration().toNanos();
+        boolean acquired;
+        try {
+            acquired = inFlight.tryAcquire(timeout, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw RequestNotPermitted.createRequestNotPermitted(rateLimiter);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #acquire()}: false instead of waiting when no slot is free.
+     */
+    public boolean tryAcquire() {
+        return !props.enabled() || inFlight.tryAcquire();
+    }
+
+    public void release() {
+        if (props.enabled()) {
+            inFlight.release();
+        }
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        if (!props.enabled()) {
+            return;
+        }
+        samplesSinceDecrease++;
+        latencies[samples++] = latencyNanos;
+        if (samples < latencies.length) {
+            return;
+        }
+        long p95 = percentile95();
+        samples = 0;
+        if (p95 > latencyTargetNanos) {
+            log.debug("Upstream p95 {}ms over target, decreasing limit", TimeUnit.NANOSECONDS.toMillis(p95));
+            decrease();
+        } else {
+            setLimit(Math.min(props.ceiling(), limit + props.increaseStep()), increases);
+        }
+    }
+
+    public synchronized void onOverload() {
+        if (!props.enabled()) {
+            return;
+        }
+        samplesSinceDecrease++;
+        // requests already in flight at the old rate report back after a cut; don't punish them twice
+        if (samplesSinceDecrease <= latencies.length) {
+            return;
+        }
+        log.debug("Upstream overload signal, decreasing limit");
+        decrease();
+    }
+
+    public synchronized int limit() {
+        return limit;
+    }
+
+    private void decrease() {
+        setLimit(Math.max(props.floor(), (int) (limit * props.decreaseFactor())), decreases);
+        samples = 0;
+        samplesSinceDecrease = 0;
+    }
+
+    private void setLimit(int newLimit, Counter direction) {
+        if (newLimit == limit) {
+            return;
+        }
+        log.info("Adaptive upstream limit {} -> {}", limit, newLimit);
+        limit = newLimit;
+        inFlight.resize(newLimit);
+        rateLimiter.changeLimitForPeriod(newLimit);
+        direction.increment();
+    }
+
+    private long percentile95() {
+        long[] sorted = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+    }
+}
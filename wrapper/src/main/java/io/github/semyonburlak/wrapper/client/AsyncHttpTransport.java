@@ -0,0 +1,117 @@
+package io.github.semyonburlak.wrapper.client;
+
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of the {@code RestClient} used by {@link DikidiHttpClient}, built on the Apache
+ * {@link CloseableHttpAsyncClient} so async calls get the same pool limits, eviction and HTTP/1.1 policy as the
+ * blocking client. The client must already be started. Failures are reported the way
+ * {@code RestClient.retrieve()} reports them: error statuses as {@link RestClientResponseException}, I/O problems
+ * as {@link ResourceAccessException}.
+ */
+public class AsyncHttpTransport {
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final String baseUrl;
+    private final RequestConfig requestConfig;
+
+    public AsyncHttpTransport(CloseableHttpAsyncClient httpClient, String baseUrl, Duration readTimeout) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.requestConfig = RequestConfig.custom()
+                .setResponseTimeout(Timeout.of(readTimeout))
+                .build();
+    }
+
+    public CompletableFuture<ResponseEntity<byte[]>> send(
+            HttpMethod method,
+            String path,
+            @Nullable Map<String, String> queryParams,
+            @Nullable String cookies,
+            @Nullable MultiValueMap<String, String> form) {
+        URI uri = uri(path, queryParams);
+        SimpleHttpRequest request = SimpleHttpRequest.create(method.name(), uri);
+        request.setConfig(requestConfig);
+        if (cookies != null && !cookies.isBlank()) {
+            request.setHeader(HttpHeaders.COOKIE, cookies);
+        }
+        if (form != null) {
+            request.setBody(encodeForm(form), ContentType.APPLICATION_FORM_URLENCODED);
+        }
+
+        CompletableFuture<ResponseEntity<byte[]>> result = new CompletableFuture<>();
+        httpClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                HttpHeaders headers = new HttpHeaders();
+                for (Header header : response.getHeaders()) {
+                    headers.add(header.getName(), header.getValue());
+                }
+                byte[] body = response.getBodyBytes() == null ? new byte[0] : response.getBodyBytes();
+                HttpStatusCode status = HttpStatusCode.valueOf(response.getCode());
+                if (status.isError()) {
+                    result.completeExceptionally(new RestClientResponseException(
+                            status + " from " + method + " " + path, status, "",
+                            headers, body, StandardCharsets.UTF_8));
+                } else {
+                    result.complete(new ResponseEntity<>(body, headers, status));
+                }
+            }
+
+            @Override
+            public void failed(Exception failure) {
+                result.completeExceptionally(new ResourceAccessException(
+                        "I/O error on " + method + " request for \"" + uri + "\": " + failure.getMessage(),
+                        failure instanceof IOException io ? io : new IOException(failure)));
+            }
+
+            @Override
+            public void cancelled() {
+                result.completeExceptionally(new CancellationException(method + " " + uri + " was cancelled"));
+            }
+        });
+        return result;
+    }
+
+    private URI uri(String path, @Nullable Map<String, String> queryParams) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(baseUrl).path(path);
+        if (queryParams != null) {
+            queryParams.forEach(builder::queryParam);
+        }
+        return builder.encode().build().toUri();
+    }
+
+    private static String encodeForm(MultiValueMap<String, String> form) {
+        StringJoiner body = new StringJoiner("&");
+        form.forEach((name, values) -> values.forEach(value -> body.add(
+                URLEncoder.encode(name, StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(value, StandardCharsets.UTF_8))));
+        return body.toString();
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.semyonburlak.wrapper.client;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public record CallContext(String company, String origin, Priority priority) {
+
+    private static final String UNKNOWN_COMPANY = "-";
+    private static final AtomicLong ORIGINS = new AtomicLong();
+
+    public static CallContext forCompany(long companyId, Priority priority) {
+        return new CallContext(String.valueOf(companyId), nextOrigin(), priority);
+    }
+
+    public static CallContext of(@Nullable Map<String, String> queryParams) {
+        return of(queryParams, Priority.INTERACTIVE);
+    }
+
+    public static CallContext of(@Nullable Map<String, String> queryParams, Priority priority) {
+        String company = null;
+        if (queryParams != null) {
+            company = queryParams.getOrDefault("company_id", queryParams.get("company"));
+        }
+        return new CallContext(company != null ? company : UNKNOWN_COMPANY, nextOrigin(), priority);
+    }
+
+    private static String nextOrigin() {
+        return Long.toString(ORIGINS.incrementAndGet(), 36);
+    }
+}
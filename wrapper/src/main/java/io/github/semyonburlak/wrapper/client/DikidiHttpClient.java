@@ -1,26 +1,39 @@
 package io.github.semyonburlak.wrapper.client;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.decorators.Decorators;
-import io.github.resilience4j.ratelimiter.RateLimiter;
-import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
 import io.github.resilience4j.ratelimiter.RequestNotPermitted;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.retry.RetryRegistry;
+import io.github.semyonburlak.wrapper.dto.DikidiError;
 import io.github.semyonburlak.wrapper.dto.DikidiResponse;
 import io.github.semyonburlak.wrapper.dto.DikidiResult;
 import io.github.semyonburlak.wrapper.util.ResponseParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.util.UriBuilder;
-import tools.jackson.databind.JsonNode;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -28,34 +41,83 @@ import java.util.function.Supplier;
 public class DikidiHttpClient {
 
     private final RestClient restClient;
+    private final AsyncHttpTransport transport;
+    private final ScheduledExecutorService timer;
     private final ResponseParser responseParser;
 
-    private final RateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    private final FairScheduler scheduler;
+    private final AdaptiveLimiter adaptiveLimiter;
     private final Retry retry;
+    private final RetryBudget retryBudget;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final UpstreamPermits permits;
+    private final StaleResponseCache staleResponses;
+    private final RequestCoalescer coalescer = new RequestCoalescer();
 
     public DikidiHttpClient(
             RestClient restClient,
+            AsyncHttpTransport transport,
+            ScheduledExecutorService timer,
             ResponseParser responseParser,
-            RateLimiterRegistry rateLimiterRegistry,
-            RetryRegistry retryRegistry
+            FairScheduler scheduler,
+            AdaptiveLimiter adaptiveLimiter,
+            RetryRegistry retryRegistry,
+            RetryBudget retryBudget,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            UpstreamPermits permits,
+            StaleResponseCache staleResponses,
+            MeterRegistry meterRegistry
     ) {
         this.restClient = restClient;
+        this.transport = transport;
+        this.timer = timer;
         this.responseParser = responseParser;
+        this.meterRegistry = meterRegistry;
 
-        this.rateLimiter = rateLimiterRegistry.rateLimiter("dikidi");
+        this.scheduler = scheduler;
+        this.adaptiveLimiter = adaptiveLimiter;
         this.retry = retryRegistry.retry("dikidi");
+        this.retryBudget = retryBudget;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.permits = permits;
+        this.staleResponses = staleResponses;
     }
 
     public <T> DikidiResponse<T> get(
             String path, @Nullable Map<String, String> queryParams, @Nullable String cookies, Class<T> dataType) {
+        return get(path, singleValued(queryParams), cookies, dataType, CallContext.of(queryParams));
+    }
+
+    public <T> DikidiResponse<T> get(
+            String path, @Nullable Map<String, String> queryParams, Class<T> dataType, CallContext context) {
+        return get(path, singleValued(queryParams), null, dataType, context);
+    }
+
+    /**
+     * GET with repeatable query parameters, e.g. several {@code record_id_list[]} values.
+     */
+    public <T> DikidiResponse<T> get(
+            String path,
+            @Nullable MultiValueMap<String, String> queryParams,
+            @Nullable String cookies,
+            Class<T> dataType,
+            CallContext context) {
         log.debug("GET {}, queryParams={}, mapping to {}", path, queryParams, dataType.toString());
-        return execute(
+        boolean anonymous = cookies == null || cookies.isBlank();
+        String key = anonymous ? RequestCoalescer.key(path, queryParams, dataType) : null;
+        Supplier<DikidiResponse<T>> call = () -> execute(
+                HttpMethod.GET,
+                path,
+                key,
+                context,
                 client -> client
                         .get()
                         .uri(uri -> {
                             UriBuilder builder = uri.path(path);
                             if (queryParams != null) {
-                                queryParams.forEach(builder::queryParam);
+                                builder.queryParams(queryParams);
                             }
                             return builder.build();
                         }).headers(headers -> {
@@ -64,8 +126,13 @@ public class DikidiHttpClient {
                             }
                         })
                         .retrieve()
-                        .toEntity(JsonNode.class),
+                        .toEntity(byte[].class),
                 dataType);
+
+        if (key == null) {
+            return call.get();
+        }
+        return coalescer.coalesce(key, context.priority(), call);
     }
 
     public <T> DikidiResponse<T> get(String path, @Nullable Map<String, String> queryParams, Class<T> dataType) {
@@ -82,14 +149,29 @@ public class DikidiHttpClient {
         return post(path, null, body, cookies, dataType);
     }
 
+    public <T> DikidiResponse<T> post(
+            String path, MultiValueMap<String, String> body, Class<T> dataType, CallContext context) {
+        return post(path, null, body, null, dataType, context);
+    }
+
     public <T> DikidiResponse<T> post(
             String path,
             @Nullable Map<String, String> queryParams,
             MultiValueMap<String, String> body,
             @Nullable String cookies,
             Class<T> dataType) {
+        return post(path, queryParams, body, cookies, dataType, CallContext.of(queryParams));
+    }
+
+    private <T> DikidiResponse<T> post(
+            String path,
+            @Nullable Map<String, String> queryParams,
+            MultiValueMap<String, String> body,
+            @Nullable String cookies,
+            Class<T> dataType,
+            CallContext context) {
         log.debug("POST {}, queryParams={}, mapping to {}", path, queryParams, dataType.toString());
-        return execute(client -> client.post()
+        return execute(HttpMethod.POST, path, null, context, client -> client.post()
                         .uri(uri -> {
                             UriBuilder builder = uri.path(path);
                             if (queryParams != null) {
@@ -105,42 +187,302 @@ public class DikidiHttpClient {
                         })
                         .body(body)
                         .retrieve()
-                        .toEntity(JsonNode.class),
+                        .toEntity(byte[].class),
                 dataType
         );
     }
 
+    /**
+     * Non-blocking {@link #get(String, Map, Class, CallContext)}: no thread waits for the rate limiter, retry
+     * backoff or the network, so a fan-out can keep many requests in flight.
+     */
+    public <T> CompletableFuture<DikidiResponse<T>> getAsync(
+            String path, @Nullable Map<String, String> queryParams, Class<T> dataType, CallContext context) {
+        log.debug("GET async {}, queryParams={}, mapping to {}", path, queryParams, dataType.toString());
+        String key = RequestCoalescer.key(path, queryParams, dataType);
+        return coalescer.coalesceAsync(key, context.priority(), () -> executeAsync(
+                HttpMethod.GET, path, key, context,
+                () -> transport.send(HttpMethod.GET, path, queryParams, null, null), dataType));
+    }
+
+    public <T> CompletableFuture<DikidiResponse<T>> postAsync(
+            String path,
+            MultiValueMap<String, String> body,
+            @Nullable String cookies,
+            Class<T> dataType,
+            CallContext context) {
+        log.debug("POST async {}, mapping to {}", path, dataType.toString());
+        return executeAsync(HttpMethod.POST, path, null, context,
+                () -> transport.send(HttpMethod.POST, path, null, cookies, body), dataType);
+    }
+
     private <T> DikidiResponse<T> execute(
-            Function<RestClient, ResponseEntity<JsonNode>> request, Class<T> dataType) {
+            HttpMethod method,
+            String path,
+            @Nullable String staleKey,
+            CallContext context,
+            Function<RestClient, ResponseEntity<byte[]>> request,
+            Class<T> dataType) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        DikidiResponse<T> response = send(method, path, staleKey, context, request, dataType);
+        recordRequest(sample, method, path, response);
+        return response;
+    }
+
+    private <T> DikidiResponse<T> send(
+            HttpMethod method,
+            String path,
+            @Nullable String staleKey,
+            CallContext context,
+            Function<RestClient, ResponseEntity<byte[]>> request,
+            Class<T> dataType) {
         try {
+            AtomicInteger attempts = new AtomicInteger();
+            Decorators.DecorateSupplier<ResponseEntity<byte[]>> decorated = Decorators
+                    .ofSupplier(() -> {
+                        if (attempts.getAndIncrement() > 0) {
+                            meterRegistry.counter("dikidi.upstream.retries", endpointTags(method, path)).increment();
+                        }
+                        awaitPermit(method, path, context);
+                        return exchange(method, path, context, request);
+                    })
+                    .withCircuitBreaker(circuitBreakerRegistry.circuitBreaker(path));
+            // Only GETs are idempotent upstream; a repeated POST could create a second login or reservation.
+            if (method == HttpMethod.GET) {
+                retryBudget.onRequest();
+                decorated = decorated.withRetry(retry);
+            }
 
-            Supplier<ResponseEntity<JsonNode>> supplier = Decorators
-                    .ofSupplier(() -> request.apply(restClient))
-                    .withRateLimiter(rateLimiter)
-                    .withRetry(retry)
-                    .decorate();
+            return toResponse(decorated.get(), staleKey, dataType);
+        } catch (Exception e) {
+            return recover(e, method, path, staleKey, dataType);
+        }
+    }
 
-            ResponseEntity<JsonNode> response = supplier.get();
+    private <T> CompletableFuture<DikidiResponse<T>> executeAsync(
+            HttpMethod method,
+            String path,
+            @Nullable String staleKey,
+            CallContext context,
+            Supplier<CompletableFuture<ResponseEntity<byte[]>>> request,
+            Class<T> dataType) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<CompletionStage<ResponseEntity<byte[]>>> attempt = () -> {
+            if (attempts.getAndIncrement() > 0) {
+                meterRegistry.counter("dikidi.upstream.retries", endpointTags(method, path)).increment();
+            }
+            return Futures.unwrapping(awaitPermitAsync(method, path, context)
+                    .thenCompose(_ -> exchangeAsync(method, path, context, request)));
+        };
+        Supplier<CompletionStage<ResponseEntity<byte[]>>> decorated =
+                CircuitBreaker.decorateCompletionStage(circuitBreakerRegistry.circuitBreaker(path), attempt);
+        if (method == HttpMethod.GET) {
+            retryBudget.onRequest();
+            decorated = Retry.decorateCompletionStage(retry, timer, decorated);
+        }
 
-            log.debug("Raw response body: {}", response.getBody());
+        return decorated.get().toCompletableFuture().handle((response, failure) -> {
+            DikidiResponse<T> result;
+            try {
+                result = failure == null
+                        ? toResponse(response, staleKey, dataType)
+                        : recover(Futures.unwrap(failure), method, path, staleKey, dataType);
+            } catch (Exception e) {
+                result = recover(e, method, path, staleKey, dataType);
+            }
+            recordRequest(sample, method, path, result);
+            return result;
+        });
+    }
 
-            DikidiResult<T> result = responseParser.parse(response.getBody(), dataType);
-            log.debug(result.toString());
-            return DikidiResponse.of(result, response.getHeaders());
-        } catch (RestClientResponseException e) {
+    private <T> DikidiResponse<T> toResponse(
+            ResponseEntity<byte[]> response, @Nullable String staleKey, Class<T> dataType) {
+        if (log.isDebugEnabled() && response.getBody() != null) {
+            log.debug("Raw response body: {}", new String(response.getBody(), StandardCharsets.UTF_8));
+        }
+
+        DikidiResult<T> result = responseParser.parseBody(response.getBody(), dataType);
+        log.debug(result.toString());
+        DikidiResponse<T> parsed = DikidiResponse.of(result, response.getHeaders());
+        if (staleKey != null && result.success()) {
+            staleResponses.put(staleKey, parsed);
+        }
+        return parsed;
+    }
+
+    private <T> DikidiResponse<T> recover(
+            Throwable failure, HttpMethod method, String path, @Nullable String staleKey, Class<T> dataType) {
+        return switch (failure) {
+            case RestClientResponseException e -> {
+                try {
+                    DikidiResult<T> result = responseParser.parseBody(e.getResponseBodyAsByteArray(), dataType);
+                    yield DikidiResponse.of(result, e.getResponseHeaders());
+                } catch (Exception parseEx) {
+                    log.warn("Failed to parse error response body: {}", parseEx.getMessage());
+                    yield DikidiResponse.of(DikidiResult.fail("NETWORK", parseEx.getMessage()), null);
+                }
+            }
+            case RequestNotPermitted _ ->
+                    DikidiResponse.of(DikidiResult.fail("RATE_LIMITED", "Too many requests"), null);
+            case CallNotPermittedException _ ->
+                    fallback(method, path, staleKey, "CIRCUIT_OPEN", "Upstream circuit is open");
+            case BulkheadFullException _ ->
+                    fallback(method, path, staleKey, "BULKHEAD_FULL", "Too many upstream calls in flight");
+            default -> {
+                log.warn("Network error calling Dikidi: {}", failure.getMessage(), failure);
+                yield DikidiResponse.of(DikidiResult.fail("NETWORK", failure.getMessage()), null);
+            }
+        };
+    }
+
+    private void recordRequest(Timer.Sample sample, HttpMethod method, String path, DikidiResponse<?> response) {
+        sample.stop(Timer.builder("dikidi.upstream.requests")
+                .description("Upstream calls including rate-limiter wait and retries")
+                .tags(endpointTags(method, path))
+                .tag("code", resultCode(response.result()))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Takes the in-flight and bulkhead slot first and only then the rate-limiter permit, so a call that would have
+     * to wait for a slot does not spend a permit it cannot use yet.
+     */
+    private void awaitPermit(HttpMethod method, String path, CallContext context) {
+        long start = System.nanoTime();
+        String outcome = "permitted";
+        try {
+            permits.acquire();
             try {
-                JsonNode errorNode = e.getResponseBodyAs(JsonNode.class);
-                DikidiResult<T> result = responseParser.parse(errorNode, dataType);
-                return DikidiResponse.of(result, e.getResponseHeaders());
-            } catch (Exception parseEx) {
-                log.warn("Failed to parse error response body: {}", parseEx.getMessage());
-                return DikidiResponse.of(DikidiResult.fail("NETWORK", parseEx.getMessage()), null);
+                scheduler.acquire(context);
+            } catch (RequestNotPermitted e) {
+                permits.release();
+                throw e;
             }
-        } catch (RequestNotPermitted e) {
-            return DikidiResponse.of(DikidiResult.fail("RATE_LIMITED", "Too many requests"), null);
-        } catch (Exception e) {
-            log.warn("Network error calling Dikidi: {}", e.getMessage(), e);
-            return DikidiResponse.of(DikidiResult.fail("NETWORK", e.getMessage()), null);
+        } catch (RequestNotPermitted | BulkheadFullException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            recordPermitWait(method, path, outcome, start);
         }
     }
+
+    /**
+     * Async twin of {@link #awaitPermit}: waits for the slot and then the permit without parking a thread.
+     */
+    private CompletableFuture<Void> awaitPermitAsync(HttpMethod method, String path, CallContext context) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> permit = permits.acquireAsync(timer).thenCompose(_ -> scheduler
+                .acquireAsync(context, timer)
+                .whenComplete((_, failure) -> {
+                    if (failure != null) {
+                        permits.release();
+                    }
+                }));
+        return Futures.unwrapping(permit).whenComplete((_, failure) -> recordPermitWait(method, path,
+                failure instanceof RequestNotPermitted || failure instanceof BulkheadFullException
+                        ? "rejected" : "permitted", start));
+    }
+
+    private void recordPermitWait(HttpMethod method, String path, String outcome, long start) {
+        Timer.builder("dikidi.upstream.ratelimiter.wait")
+                .description("Time spent waiting for a rate-limiter permit")
+                .tags(endpointTags(method, path))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private ResponseEntity<byte[]> exchange(
+            HttpMethod method,
+            String path,
+            CallContext context,
+            Function<RestClient, ResponseEntity<byte[]>> request) {
+        long start = System.nanoTime();
+        int statusCode = 0;
+        try {
+            ResponseEntity<byte[]> response = request.apply(restClient);
+            statusCode = response.getStatusCode().value();
+            return response;
+        } catch (RestClientResponseException e) {
+            statusCode = e.getStatusCode().value();
+            throw e;
+        } finally {
+            afterExchange(method, path, context, start, statusCode);
+        }
+    }
+
+    private CompletableFuture<ResponseEntity<byte[]>> exchangeAsync(
+            HttpMethod method,
+            String path,
+            CallContext context,
+            Supplier<CompletableFuture<ResponseEntity<byte[]>>> request) {
+        long start = System.nanoTime();
+        CompletableFuture<ResponseEntity<byte[]>> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            afterExchange(method, path, context, start, 0);
+            throw e;
+        }
+        return Futures.unwrapping(response.whenComplete((entity, failure) -> {
+            int statusCode = entity != null ? entity.getStatusCode().value()
+                    : Futures.unwrap(failure) instanceof RestClientResponseException e ? e.getStatusCode().value() : 0;
+            afterExchange(method, path, context, start, statusCode);
+        }));
+    }
+
+    /**
+     * Returns the permits taken in {@code awaitPermit}, feeds the adaptive limiter and records the attempt.
+     * {@code statusCode} is 0 when no response arrived.
+     */
+    private void afterExchange(HttpMethod method, String path, CallContext context, long start, int statusCode) {
+        long elapsed = System.nanoTime() - start;
+        scheduler.release(context);
+        if (statusCode == 0 || statusCode == HttpStatus.TOO_MANY_REQUESTS.value() || statusCode >= 500) {
+            adaptiveLimiter.onOverload();
+        } else {
+            adaptiveLimiter.onSuccess(elapsed);
+        }
+        permits.release();
+        Timer.builder("dikidi.upstream.latency")
+                .description("Network time of a single upstream attempt")
+                .tags(endpointTags(method, path))
+                .tag("status", statusCode == 0 ? "IO_ERROR" : String.valueOf(statusCode))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    private <T> DikidiResponse<T> fallback(
+            HttpMethod method, String path, @Nullable String staleKey, String code, String message) {
+        DikidiResponse<T> stale = staleKey == null ? null : staleResponses.get(staleKey);
+        meterRegistry.counter("dikidi.upstream.fallback",
+                        endpointTags(method, path).and("reason", code, "outcome", stale != null ? "stale" : "none"))
+                .increment();
+        if (stale != null) {
+            log.debug("{} for {}, serving last good response", code, path);
+            return stale;
+        }
+        return DikidiResponse.of(DikidiResult.fail(code, message), null);
+    }
+
+    @Nullable
+    private static MultiValueMap<String, String> singleValued(@Nullable Map<String, String> queryParams) {
+        return queryParams == null ? null : MultiValueMap.fromSingleValue(queryParams);
+    }
+
+    private static String resultCode(DikidiResult<?> result) {
+        if (result.success()) {
+            return "OK";
+        }
+        DikidiError error = result.error();
+        return error == null || error.code() == null ? "UNKNOWN" : error.code();
+    }
+
+    private static Tags endpointTags(HttpMethod method, String path) {
+        return Tags.of("method", method.name(), "path", path);
+    }
 }
@@ -0,0 +1,404 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Orders access to the shared upstream rate limiter. Only one caller at a time waits on the limiter (holds the
+ * gate); when it is done the gate goes to the highest {@link Priority} with an eligible waiter, and within a
+ * priority in round-robin order, first across companies and then across originating requests within a company.
+ * An origin cannot hold more than {@code maxInFlightPerOrigin} requests at once, and once the queue is deeper
+ * than a priority's shed depth new arrivals of that priority are rejected instead of queued.
+ * <p>
+ * {@link #acquireAsync} shares the same queue but never parks a thread: the turn is handed over by completing a
+ * future, and the rate-limiter wait becomes a delayed task on the given timer.
+ */
+public class FairScheduler {
+
+    private final RateLimiter rateLimiter;
+    private final int maxInFlightPerOrigin;
+    private final int shedQueueDepth;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> shed = new EnumMap<>(Priority.class);
+    private boolean gateBusy;
+    private int queued;
+
+    public FairScheduler(
+            RateLimiter rateLimiter, int maxInFlightPerOrigin, int shedQueueDepth, MeterRegistry registry) {
+        if (maxInFlightPerOrigin < 1) {
+            throw new IllegalArgumentException("maxInFlightPerOrigin must be positive: " + maxInFlightPerOrigin);
+        }
+        this.rateLimiter = rateLimiter;
+        this.maxInFlightPerOrigin = maxInFlightPerOrigin;
+        this.shedQueueDepth = shedQueueDepth;
+
+        for (Priority priority : Priority.values()) {
+            Lane lane = new Lane();
+            lanes.put(priority, lane);
+            Gauge.builder("dikidi.scheduler.queued", this, scheduler -> scheduler.queued(priority))
+                    .description("Upstream calls waiting for their turn at the rate limiter")
+                    .tag("priority", priority.name())
+                    .register(registry);
+            shed.put(priority, Counter.builder("dikidi.scheduler.shed")
+                    .description("Upstream calls rejected because the scheduler queue was too deep")
+                    .tag("priority", priority.name())
+                    .register(registry));
+        }
+        Gauge.builder("dikidi.scheduler.companies", this, FairScheduler::activeCompanies)
+                .description("Companies with queued or in-flight upstream calls")
+                .register(registry);
+    }
+
+    public void acquire(CallContext context) {
+        Waiter waiter = enter(context, null);
+        if (!waiter.admitted) {
+            awaitGate(waiter);
+        }
+        try {
+            RateLimiter.waitForPermission(rateLimiter);
+        } catch (RuntimeException e) {
+            release(context);
+            throw e;
+        } finally {
+            passGate();
+        }
+    }
+
+    public CompletableFuture<Void> acquireAsync(CallContext context, ScheduledExecutorService timer) {
+        Waiter waiter;
+        try {
+            waiter = enter(context, timer);
+        } catch (RequestNotPermitted e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return waiter.ready;
+    }
+
+    public void release(CallContext context) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(context.priority());
+            Company company = lane.companies.get(context.company());
+            Origin origin = company == null ? null : company.origins.get(context.origin());
+            if (origin != null) {
+                releaseSlot(origin);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True when no call is waiting for a turn and the rate limiter has more than {@code reserve} unused permits
+     * in the current period, i.e. background work would not delay anyone.
+     */
+    public boolean hasSpareCapacity(int reserve) {
+        lock.lock();
+        try {
+            if (queued > 0 || gateBusy) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return rateLimiter.getMetrics().getAvailablePermissions() > reserve;
+    }
+
+    public int queued(Priority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int activeCompanies() {
+        lock.lock();
+        try {
+            return lanes.values().stream().mapToInt(lane -> lane.companies.size()).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Waiter enter(CallContext context, @Nullable ScheduledExecutorService timer) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(context.priority());
+            Company company = lane.companies.computeIfAbsent(context.company(), id -> new Company(id, lane));
+            Origin origin = company.origins.computeIfAbsent(context.origin(), id -> new Origin(id, company));
+            Waiter waiter = timer == null
+                    ? new Waiter(origin, lock.newCondition(), null)
+                    : new Waiter(origin, null, timer);
+            if (!gateBusy && origin.inFlight < maxInFlightPerOrigin) {
+                gateBusy = true;
+                admit(waiter);
+            } else if (queued >= context.priority().shedQueueDepth(shedQueueDepth)) {
+                forgetIfIdle(origin);
+                shed.get(context.priority()).increment();
+                throw RequestNotPermitted.createRequestNotPermitted(rateLimiter);
+            } else {
+                enqueue(waiter);
+                if (timer != null) {
+                    long timeout = rateLimiter.getRateLimiterConfig().getTimeoutDuration().toNanos();
+                    waiter.expiry = timer.schedule(() -> expire(waiter), timeout, TimeUnit.NANOSECONDS);
+                }
+            }
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitGate(Waiter waiter) {
+        long remaining = rateLimiter.getRateLimiterConfig().getTimeoutDuration().toNanos();
+        lock.lock();
+        try {
+            while (!waiter.admitted && remaining > 0) {
+                remaining = waiter.turn.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!waiter.admitted) {
+                dequeue(waiter);
+                forgetIfIdle(waiter.origin);
+            }
+            lock.unlock();
+        }
+        if (!waiter.admitted) {
+            throw RequestNotPermitted.createRequestNotPermitted(rateLimiter);
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiter.admitted) {
+                return;
+            }
+            dequeue(waiter);
+            forgetIfIdle(waiter.origin);
+        } finally {
+            lock.unlock();
+        }
+        waiter.ready.completeExceptionally(RequestNotPermitted.createRequestNotPermitted(rateLimiter));
+    }
+
+    /**
+     * Async twin of the tail of {@link #acquire}: runs on the timer once the waiter holds the gate.
+     */
+    private void reservePermit(Waiter waiter) {
+        long delay = rateLimiter.reservePermission();
+        if (delay < 0) {
+            lock.lock();
+            try {
+                releaseSlot(waiter.origin);
+            } finally {
+                lock.unlock();
+            }
+            passGate();
+            waiter.ready.completeExceptionally(RequestNotPermitted.createRequestNotPermitted(rateLimiter));
+        } else if (delay == 0) {
+            passGate();
+            waiter.ready.complete(null);
+        } else {
+            waiter.timer.schedule(() -> {
+                passGate();
+                waiter.ready.complete(null);
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void releaseSlot(Origin origin) {
+        origin.inFlight--;
+        forgetIfIdle(origin);
+        if (!gateBusy) {
+            Waiter next = pollNextEligible();
+            if (next != null) {
+                gateBusy = true;
+                admit(next);
+            }
+        }
+    }
+
+    private void passGate() {
+        lock.lock();
+        try {
+            Waiter next = pollNextEligible();
+            if (next != null) {
+                admit(next);
+            } else {
+                gateBusy = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void admit(Waiter waiter) {
+        waiter.origin.inFlight++;
+        waiter.admitted = true;
+        if (waiter.timer == null) {
+            waiter.turn.signal();
+            return;
+        }
+        if (waiter.expiry != null) {
+            waiter.expiry.cancel(false);
+        }
+        waiter.timer.execute(() -> reservePermit(waiter));
+    }
+
+    private void enqueue(Waiter waiter) {
+        Origin origin = waiter.origin;
+        Company company = origin.company;
+        Lane lane = company.lane;
+        if (origin.waiters.isEmpty()) {
+            if (company.ring.isEmpty()) {
+                lane.ring.addLast(company);
+            }
+            company.ring.addLast(origin);
+        }
+        origin.waiters.addLast(waiter);
+        lane.queued++;
+        queued++;
+    }
+
+    private void dequeue(Waiter waiter) {
+        Origin origin = waiter.origin;
+        if (!origin.waiters.remove(waiter)) {
+            return;
+        }
+        origin.company.lane.queued--;
+        queued--;
+        if (origin.waiters.isEmpty()) {
+            origin.company.ring.remove(origin);
+            if (origin.company.ring.isEmpty()) {
+                origin.company.lane.ring.remove(origin.company);
+            }
+        }
+    }
+
+    private Waiter pollNextEligible() {
+        for (Lane lane : lanes.values()) {
+            Waiter waiter = lane.pollNextEligible(maxInFlightPerOrigin);
+            if (waiter != null) {
+                queued--;
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private void forgetIfIdle(Origin origin) {
+        if (origin.inFlight > 0 || !origin.waiters.isEmpty()) {
+            return;
+        }
+        Company company = origin.company;
+        company.origins.remove(origin.id);
+        if (company.origins.isEmpty()) {
+            company.lane.companies.remove(company.id);
+        }
+    }
+
+    private static final class Lane {
+        private final Map<String, Company> companies = new HashMap<>();
+        private final ArrayDeque<Company> ring = new ArrayDeque<>();
+        private int queued;
+
+        private Waiter pollNextEligible(int maxInFlight) {
+            for (int i = ring.size(); i > 0; i--) {
+                Company company = ring.pollFirst();
+                Waiter waiter = company.pollNextEligible(maxInFlight);
+                if (!company.ring.isEmpty()) {
+                    ring.addLast(company);
+                }
+                if (waiter != null) {
+                    queued--;
+                    return waiter;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Company {
+        private final String id;
+        private final Lane lane;
+        private final Map<String, Origin> origins = new HashMap<>();
+        private final ArrayDeque<Origin> ring = new ArrayDeque<>();
+
+        private Company(String id, Lane lane) {
+            this.id = id;
+            this.lane = lane;
+        }
+
+        private Waiter pollNextEligible(int maxInFlight) {
+            for (int i = ring.size(); i > 0; i--) {
+                Origin origin = ring.pollFirst();
+                Waiter waiter = origin.inFlight < maxInFlight ? origin.waiters.pollFirst() : null;
+                if (!origin.waiters.isEmpty()) {
+                    ring.addLast(origin);
+                }
+                if (waiter != null) {
+                    return waiter;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Origin {
+        private final String id;
+        private final Company company;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private int inFlight;
+
+        private Origin(String id, Company company) {
+            this.id = id;
+            this.company = company;
+        }
+    }
+
+    private static final class Waiter {
+        private final Origin origin;
+        private final Condition turn;
+        private final ScheduledExecutorService timer;
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+        private ScheduledFuture<?> expiry;
+        private boolean admitted;
+
+        private Waiter(Origin origin, @Nullable Condition turn, @Nullable ScheduledExecutorService timer) {
+            this.origin = origin;
+            this.turn = turn;
+            this.timer = timer;
+        }
+    }
+}
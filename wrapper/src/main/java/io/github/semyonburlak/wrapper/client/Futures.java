@@ -0,0 +1,36 @@
+package io.github.semyonburlak.wrapper.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+final class Futures {
+
+    private Futures() {
+    }
+
+    static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Re-completes {@code stage} so that callbacks see the original failure rather than the
+     * {@link CompletionException} that dependent stages wrap it in; resilience4j classifies failures by type.
+     */
+    static <T> CompletableFuture<T> unwrapping(CompletableFuture<T> stage) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        stage.whenComplete((value, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(unwrap(failure));
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.semyonburlak.wrapper.client;
+
+public enum Priority {
+    BOOKING,
+    INTERACTIVE,
+    BULK;
+
+    int shedQueueDepth(int base) {
+        return switch (this) {
+            case BOOKING -> Integer.MAX_VALUE;
+            case INTERACTIVE -> base * 2;
+            case BULK -> base;
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.semyonburlak.wrapper.dto.DikidiResponse;
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares one upstream call among concurrent identical requests. A request only joins a call made at its own
+ * priority or a more urgent one: a BULK call may be shed or queued behind other bulk work, and an INTERACTIVE
+ * request riding on it would inherit that outcome.
+ */
+public class RequestCoalescer {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final Map<InFlightKey, CompletableFuture<DikidiResponse<?>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Query parameters may be single values or lists; a one-element list yields the same key as its value.
+     */
+    public static String key(String path, @Nullable Map<String, ?> queryParams, Class<?> dataType) {
+        StringBuilder key = new StringBuilder(path).append('?');
+        if (queryParams != null) {
+            new TreeMap<>(queryParams).forEach((name, value) -> {
+                for (Object item : value instanceof List<?> list ? list : List.of(String.valueOf(value))) {
+                    key.append(name).append('=').append(item).append('&');
+                }
+            });
+        }
+        return key.append('#').append(dataType.getName()).toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> DikidiResponse<T> coalesce(String key, Priority priority, Supplier<DikidiResponse<T>> call) {
+        CompletableFuture<DikidiResponse<?>> own = new CompletableFuture<>();
+        InFlightKey ownKey = new InFlightKey(key, priority);
+        CompletableFuture<DikidiResponse<?>> leader = join(ownKey, own);
+        if (leader != null) {
+            return (DikidiResponse<T>) leader.join();
+        }
+        try {
+            DikidiResponse<T> response = call.get();
+            own.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(ownKey, own);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<DikidiResponse<T>> coalesceAsync(
+            String key, Priority priority, Supplier<CompletableFuture<DikidiResponse<T>>> call) {
+        CompletableFuture<DikidiResponse<?>> own = new CompletableFuture<>();
+        InFlightKey ownKey = new InFlightKey(key, priority);
+        CompletableFuture<DikidiResponse<?>> leader = join(ownKey, own);
+        if (leader != null) {
+            return (CompletableFuture<DikidiResponse<T>>) (CompletableFuture<?>) leader;
+        }
+        CompletableFuture<DikidiResponse<T>> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            inFlight.remove(ownKey, own);
+            throw e;
+        }
+        started.whenComplete((response, failure) -> {
+            if (failure != null) {
+                own.completeExceptionally(failure);
+            } else {
+                own.complete(response);
+            }
+            inFlight.remove(ownKey, own);
+        });
+        return (CompletableFuture<DikidiResponse<T>>) (CompletableFuture<?>) own;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * The call to join, most urgent first, or {@code null} once {@code own} has been registered as the leader.
+     */
+    @Nullable
+    private CompletableFuture<DikidiResponse<?>> join(InFlightKey ownKey, CompletableFuture<DikidiResponse<?>> own) {
+        for (Priority priority : PRIORITIES) {
+            if (priority == ownKey.priority()) {
+                return inFlight.putIfAbsent(ownKey, own);
+            }
+            CompletableFuture<DikidiResponse<?>> leader = inFlight.get(new InFlightKey(ownKey.key(), priority));
+            if (leader != null) {
+                return leader;
+            }
+        }
+        throw new IllegalStateException("Unknown priority " + ownKey.priority());
+    }
+
+    private record InFlightKey(String key, Priority priority) {
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global cap on upstream retries: every request deposits {@code ratio} of a token, every retry spends a whole
+ * one, and the balance never exceeds {@code reserve} tokens. Under sustained failure retries settle at
+ * {@code ratio} of traffic instead of multiplying it.
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    private final Counter granted;
+    private final Counter exhausted;
+
+    public RetryBudget(double ratio, int reserve, MeterRegistry registry) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("Retry budget ratio must be in [0, 1]: " + ratio);
+        }
+        this.deposit = Math.round(ratio * SCALE);
+        this.capacity = Math.max(1, reserve) * SCALE;
+        this.balance = new AtomicLong(capacity);
+
+        Gauge.builder("dikidi.upstream.retry.budget", this, RetryBudget::balance)
+                .description("Retries currently affordable under the retry budget")
+                .register(registry);
+        this.granted = Counter.builder("dikidi.upstream.retry.budget.decisions").tag("outcome", "granted")
+                .register(registry);
+        this.exhausted = Counter.builder("dikidi.upstream.retry.budget.decisions").tag("outcome", "exhausted")
+                .register(registry);
+    }
+
+    public void onRequest() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(capacity, current + amount));
+    }
+
+    /**
+     * Whether a retry could be paid for right now, without spending anything; a refusal is counted.
+     */
+    public boolean canAfford() {
+        if (balance.get() < SCALE) {
+            exhausted.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Pays for a retry that is going ahead. The balance never drops below zero, so a retry that raced another
+     * one for the last token is not charged twice.
+     */
+    public void spend() {
+        balance.accumulateAndGet(SCALE, (current, amount) -> Math.max(0, current - amount));
+        granted.increment();
+    }
+
+    public double balance() {
+        return (double) balance.get() / SCALE;
+    }
+}
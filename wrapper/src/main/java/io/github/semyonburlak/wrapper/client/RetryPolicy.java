@@ -0,0 +1,91 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.resilience4j.core.functions.Either;
+import jakarta.annotation.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed upstream attempt is worth repeating and how long to wait first. Only I/O errors and
+ * 429/502/503/504 are retried, each retry must be paid for from the {@link RetryBudget}, and the wait is either
+ * the server's {@code Retry-After} or exponential backoff with full jitter.
+ * <p>
+ * Resilience4j evaluates {@link #shouldRetry} before its max-attempts check, so the last failed attempt would
+ * be charged for a retry that never happens; the predicate only checks the balance and the token is spent in
+ * {@link #backoffMillis}, which is called only once a retry has been scheduled.
+ */
+public class RetryPolicy {
+
+    private static final Set<Integer> TRANSIENT_STATUSES = Set.of(429, 502, 503, 504);
+
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Duration maxRetryAfter;
+    private final RetryBudget budget;
+
+    public RetryPolicy(Duration baseBackoff, Duration maxBackoff, Duration maxRetryAfter, RetryBudget budget) {
+        this.baseBackoffMillis = Math.max(1, baseBackoff.toMillis());
+        this.maxBackoffMillis = Math.max(baseBackoffMillis, maxBackoff.toMillis());
+        this.maxRetryAfter = maxRetryAfter;
+        this.budget = budget;
+    }
+
+    public boolean shouldRetry(Throwable failure) {
+        if (!isTransient(failure)) {
+            return false;
+        }
+        Duration retryAfter = retryAfter(failure);
+        if (retryAfter != null && retryAfter.compareTo(maxRetryAfter) > 0) {
+            return false;
+        }
+        return budget.canAfford();
+    }
+
+    public long backoffMillis(int attempt, Either<Throwable, ?> outcome) {
+        budget.spend();
+        Duration retryAfter = outcome.isLeft() ? retryAfter(outcome.getLeft()) : null;
+        if (retryAfter != null) {
+            return retryAfter.toMillis();
+        }
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.clamp(attempt - 1, 0, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static boolean isTransient(Throwable failure) {
+        if (failure instanceof RestClientResponseException response) {
+            return TRANSIENT_STATUSES.contains(response.getStatusCode().value());
+        }
+        return failure instanceof ResourceAccessException;
+    }
+
+    @Nullable
+    static Duration retryAfter(Throwable failure) {
+        if (!(failure instanceof RestClientResponseException response) || response.getResponseHeaders() == null) {
+            return null;
+        }
+        String value = response.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException _) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration wait = Duration.between(ZonedDateTime.now(at.getZone()), at);
+                return wait.isNegative() ? Duration.ZERO : wait;
+            } catch (DateTimeParseException _) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.semyonburlak.wrapper.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.semyonburlak.wrapper.dto.DikidiResponse;
+import jakarta.annotation.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Last successful response per request key, served when the upstream is short-circuited.
+ * Keys come from {@link RequestCoalescer#key} and include the data type, so a hit is always of the requested type.
+ */
+public class StaleResponseCache {
+
+    private final Cache<String, DikidiResponse<?>> responses;
+
+    public StaleResponseCache(long maxEntries, Duration maxAge) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(maxAge)
+                .build();
+    }
+
+    public void put(String key, DikidiResponse<?> response) {
+        responses.put(key, response);
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> DikidiResponse<T> get(String key) {
+        return (DikidiResponse<T>) responses.getIfPresent(key);
+    }
+
+    public long size() {
+        return responses.estimatedSize();
+    }
+}
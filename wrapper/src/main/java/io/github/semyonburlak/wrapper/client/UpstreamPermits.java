@@ -0,0 +1,132 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The adaptive in-flight cap and the bulkhead, taken together before a call asks the {@link FairScheduler} for a
+ * rate-limiter permit, so a call that cannot run yet does not burn one. {@link #acquire()} blocks the way the sync
+ * path always has; {@link #acquireAsync} queues callers in arrival order and hands them slots from
+ * {@link #release()}, so a full cap delays an async call instead of failing it. An async waiter that gets no slot
+ * within the rate limiter's timeout fails like the blocking path: {@link BulkheadFullException} when the bulkhead
+ * is full, {@link RequestNotPermitted} otherwise.
+ */
+public class UpstreamPermits {
+
+    private final RateLimiter rateLimiter;
+    private final AdaptiveLimiter adaptiveLimiter;
+    private final Bulkhead bulkhead;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    public UpstreamPermits(RateLimiter rateLimiter, AdaptiveLimiter adaptiveLimiter, Bulkhead bulkhead) {
+        this.rateLimiter = rateLimiter;
+        this.adaptiveLimiter = adaptiveLimiter;
+        this.bulkhead = bulkhead;
+    }
+
+    public void acquire() {
+        adaptiveLimiter.acquire();
+        try {
+            bulkhead.acquirePermission();
+        } catch (BulkheadFullException e) {
+            adaptiveLimiter.release();
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> acquireAsync(ScheduledExecutorService timer) {
+        Waiter waiter = new Waiter();
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && tryTake()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            long timeout = rateLimiter.getRateLimiterConfig().getTimeoutDuration().toNanos();
+            if (timeout <= 0) {
+                return CompletableFuture.failedFuture(rejection());
+            }
+            waiters.addLast(waiter);
+            waiter.expiry = timer.schedule(() -> expire(waiter), timeout, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+        return waiter.ready;
+    }
+
+    /**
+     * Returns a slot taken by either acquire method and hands whatever is free to queued async callers. Call it
+     * after feeding the adaptive limiter, so a cap that has just grown is handed out too.
+     */
+    public void release() {
+        bulkhead.onComplete();
+        adaptiveLimiter.release();
+        List<Waiter> granted = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!waiters.isEmpty() && tryTake()) {
+                Waiter waiter = waiters.pollFirst();
+                waiter.expiry.cancel(false);
+                granted.add(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+        granted.forEach(waiter -> waiter.ready.complete(null));
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryTake() {
+        if (!adaptiveLimiter.tryAcquire()) {
+            return false;
+        }
+        if (!bulkhead.tryAcquirePermission()) {
+            adaptiveLimiter.release();
+            return false;
+        }
+        return true;
+    }
+
+    private void expire(Waiter waiter) {
+        lock.lock();
+        try {
+            if (!waiters.remove(waiter)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        waiter.ready.completeExceptionally(rejection());
+    }
+
+    private RuntimeException rejection() {
+        return bulkhead.getMetrics().getAvailableConcurrentCalls() == 0
+                ? BulkheadFullException.createBulkheadFullException(bulkhead)
+                : RequestNotPermitted.createRequestNotPermitted(rateLimiter);
+    }
+
+    private static final class Waiter {
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+        private ScheduledFuture<?> expiry;
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dikidi.adaptive-limit")
+public record AdaptiveLimitProps(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("2") int floor,
+        @DefaultValue("30") int ceiling,
+        @DefaultValue("1") int increaseStep,
+        @DefaultValue("0.5") double decreaseFactor,
+        @DefaultValue("1500ms") Duration latencyTarget,
+        @DefaultValue("20") int window
+) {
+}
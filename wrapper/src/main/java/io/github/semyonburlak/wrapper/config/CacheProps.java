@@ -0,0 +1,36 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dikidi.cache")
+public record CacheProps(
+        @DefaultValue Categories categories,
+        @DefaultValue Slots slots,
+        @DefaultValue Sessions sessions
+) {
+
+    public record Categories(
+            @DefaultValue("100000") long maxWeight,
+            @DefaultValue("6h") Duration ttl,
+            @DefaultValue("15m") Duration refreshAfter,
+            @DefaultValue("4") int refreshConcurrency
+    ) {
+    }
+
+    public record Slots(
+            @DefaultValue("500000") long maxWeight,
+            @DefaultValue("2m") Duration ttl,
+            @DefaultValue("30s") Duration todayTtl
+    ) {
+    }
+
+    public record Sessions(
+            @DefaultValue("10000") long maxSize,
+            @DefaultValue("30m") Duration sessionCookieTtl,
+            @DefaultValue("1m") Duration expiryMargin
+    ) {
+    }
+}
@@ -1,16 +1,41 @@
 package io.github.semyonburlak.wrapper.config;
 
-import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.retry.RetryRegistry;
+import io.github.semyonburlak.wrapper.client.AdaptiveLimiter;
+import io.github.semyonburlak.wrapper.client.AsyncHttpTransport;
 import io.github.semyonburlak.wrapper.client.DikidiHttpClient;
+import io.github.semyonburlak.wrapper.client.FairScheduler;
+import io.github.semyonburlak.wrapper.client.RetryBudget;
+import io.github.semyonburlak.wrapper.client.StaleResponseCache;
+import io.github.semyonburlak.wrapper.client.UpstreamPermits;
 import io.github.semyonburlak.wrapper.util.ResponseParser;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 import tools.jackson.databind.DeserializationFeature;
 import tools.jackson.databind.ObjectMapper;
@@ -22,9 +47,12 @@ import tools.jackson.databind.ext.javatime.ser.LocalDateTimeSerializer;
 import tools.jackson.databind.json.JsonMapper;
 import tools.jackson.databind.module.SimpleModule;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.ToIntFunction;
 
 @RequiredArgsConstructor
 @Configuration
@@ -33,45 +61,156 @@ public class ClientConfig {
 
     private final ClientProps clientProps;
 
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager connectionManager() {
+        ClientProps.Pool pool = clientProps.pool();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.maxTotal())
+                .setMaxConnPerRoute(pool.maxPerRoute())
+                .setDefaultConnectionConfig(connectionConfig())
+                .build();
+    }
+
+    /**
+     * Pool for the async transport, sized from the same {@code dikidi.http.pool} settings as the blocking one and
+     * held to HTTP/1.1 like it.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingAsyncClientConnectionManager asyncConnectionManager() {
+        ClientProps.Pool pool = clientProps.pool();
+        return PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.maxTotal())
+                .setMaxConnPerRoute(pool.maxPerRoute())
+                .setDefaultConnectionConfig(connectionConfig())
+                .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1).build())
+                .build();
+    }
+
+    private ConnectionConfig connectionConfig() {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(clientProps.connectTimeout()))
+                .setSocketTimeout(Timeout.ofMilliseconds(clientProps.readTimeout()))
+                .setTimeToLive(TimeValue.of(clientProps.pool().timeToLive()))
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(clientProps.pool().idleTimeout()))
+                .build();
+    }
+
     @Bean
-    public SimpleClientHttpRequestFactory requestFactory() {
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-        requestFactory.setConnectTimeout(clientProps.connectTimeout());
-        requestFactory.setReadTimeout(clientProps.readTimeout());
+    public ClientHttpRequestFactory requestFactory(CloseableHttpClient httpClient) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectionRequestTimeout(Duration.ofMillis(clientProps.connectTimeout()));
+        requestFactory.setReadTimeout(Duration.ofMillis(clientProps.readTimeout()));
         return requestFactory;
     }
 
+    @Bean
+    public MeterBinder connectionPoolMetrics(
+            PoolingHttpClientConnectionManager connectionManager,
+            PoolingAsyncClientConnectionManager asyncConnectionManager
+    ) {
+        return registry -> {
+            poolGauges(registry, connectionManager, "blocking");
+            poolGauges(registry, asyncConnectionManager, "async");
+        };
+    }
+
+    private static void poolGauges(MeterRegistry registry, ConnPoolControl<?> connectionManager, String pool) {
+        poolGauge(registry, connectionManager, pool, "leased", PoolStats::getLeased);
+        poolGauge(registry, connectionManager, pool, "available", PoolStats::getAvailable);
+        poolGauge(registry, connectionManager, pool, "pending", PoolStats::getPending);
+        poolGauge(registry, connectionManager, pool, "max", PoolStats::getMax);
+    }
+
+    private static void poolGauge(
+            MeterRegistry registry,
+            ConnPoolControl<?> connectionManager,
+            String pool,
+            String state,
+            ToIntFunction<PoolStats> value
+    ) {
+        Gauge.builder("dikidi.http.pool.connections", connectionManager, cm -> value.applyAsInt(cm.getTotalStats()))
+                .tag("pool", pool)
+                .tag("state", state)
+                .register(registry);
+    }
+
     @Bean("restClient")
-    public RestClient restClient(SimpleClientHttpRequestFactory requestFactory) {
+    public RestClient restClient(ClientHttpRequestFactory requestFactory) {
         return buildRestClient(requestFactory, clientProps.baseUrl());
     }
 
     @Bean("authRestClient")
-    public RestClient authRestClient(SimpleClientHttpRequestFactory requestFactory) {
+    public RestClient authRestClient(ClientHttpRequestFactory requestFactory) {
         return buildRestClient(requestFactory, clientProps.authUrl());
     }
 
+    /**
+     * Automatic retries are off: {@link DikidiHttpClient} retries on its own timer within the retry budget, and the
+     * client's default strategy would re-send 429/503 behind its back.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient asyncHttpClient(PoolingAsyncClientConnectionManager asyncConnectionManager) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(clientProps.pool().idleTimeout()))
+                .build();
+        client.start();
+        return client;
+    }
+
     @Bean("dikidiHttpClient")
     public DikidiHttpClient dikidiClient(
             @Qualifier("restClient") RestClient restClient,
+            CloseableHttpAsyncClient asyncHttpClient,
+            @Qualifier("upstreamTimer") ScheduledExecutorService upstreamTimer,
             ResponseParser parser,
-            RateLimiterRegistry rateLimiterRegistry,
-            RetryRegistry retryRegistry
+            FairScheduler scheduler,
+            AdaptiveLimiter adaptiveLimiter,
+            RetryRegistry retryRegistry,
+            RetryBudget retryBudget,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            UpstreamPermits upstreamPermits,
+            StaleResponseCache staleResponses,
+            MeterRegistry meterRegistry
     ) {
-        return new DikidiHttpClient(restClient, parser, rateLimiterRegistry, retryRegistry);
+        AsyncHttpTransport transport = new AsyncHttpTransport(
+                asyncHttpClient, clientProps.baseUrl(), Duration.ofMillis(clientProps.readTimeout()));
+        return new DikidiHttpClient(restClient, transport, upstreamTimer, parser, scheduler, adaptiveLimiter,
+                retryRegistry, retryBudget, circuitBreakerRegistry, upstreamPermits, staleResponses, meterRegistry);
     }
 
     @Bean("authHttpClient")
     public DikidiHttpClient authDikidiClient(
             @Qualifier("authRestClient") RestClient restClient,
+            CloseableHttpAsyncClient asyncHttpClient,
+            @Qualifier("upstreamTimer") ScheduledExecutorService upstreamTimer,
             ResponseParser parser,
-            RateLimiterRegistry rateLimiterRegistry,
-            RetryRegistry retryRegistry
+            FairScheduler scheduler,
+            AdaptiveLimiter adaptiveLimiter,
+            RetryRegistry retryRegistry,
+            RetryBudget retryBudget,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            UpstreamPermits upstreamPermits,
+            StaleResponseCache staleResponses,
+            MeterRegistry meterRegistry
     ) {
-        return new DikidiHttpClient(restClient, parser, rateLimiterRegistry, retryRegistry);
+        AsyncHttpTransport transport = new AsyncHttpTransport(
+                asyncHttpClient, clientProps.authUrl(), Duration.ofMillis(clientProps.readTimeout()));
+        return new DikidiHttpClient(restClient, transport, upstreamTimer, parser, scheduler, adaptiveLimiter,
+                retryRegistry, retryBudget, circuitBreakerRegistry, upstreamPermits, staleResponses, meterRegistry);
     }
 
-    private RestClient buildRestClient(SimpleClientHttpRequestFactory requestFactory, String baseUrl) {
+    private RestClient buildRestClient(ClientHttpRequestFactory requestFactory, String baseUrl) {
         return RestClient.builder()
                 .requestFactory(requestFactory)
                 .baseUrl(baseUrl)
@@ -1,7 +1,23 @@
 package io.github.semyonburlak.wrapper.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
 
 @ConfigurationProperties(prefix = "dikidi.client")
-public record ClientProps(String baseUrl, String authUrl, int connectTimeout, int readTimeout) {
+public record ClientProps(
+        String baseUrl,
+        String authUrl,
+        int connectTimeout,
+        int readTimeout,
+        @DefaultValue Pool pool
+) {
+    public record Pool(
+            @DefaultValue("50") int maxTotal,
+            @DefaultValue("20") int maxPerRoute,
+            @DefaultValue("30s") Duration idleTimeout,
+            @DefaultValue("5m") Duration timeToLive
+    ) {
+    }
 }
@@ -0,0 +1,12 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "dikidi.compression")
+public record CompressionProps(
+        @DefaultValue("1KB") DataSize minSize,
+        @DefaultValue("10000") long maxCachedBodies
+) {
+}
@@ -0,0 +1,81 @@
+package io.github.semyonburlak.wrapper.config;
+
+import io.github.semyonburlak.wrapper.util.BoundedVirtualThreadExecutor;
+import io.github.semyonburlak.wrapper.util.WindowedFanOut;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Runs the background refreshes of the categories cache.
+     */
+    @Bean(destroyMethod = "close")
+    public BoundedVirtualThreadExecutor categoriesRefreshExecutor(CacheProps cacheProps) {
+        return new BoundedVirtualThreadExecutor("categories-refresh", cacheProps.categories().refreshConcurrency());
+    }
+
+    /**
+     * Keeps at most {@code dikidi.fan-out.max-concurrency} per-date slot calls of one range in flight.
+     */
+    @Bean
+    public WindowedFanOut slotsFanOut(FanOutProps fanOutProps) {
+        return new WindowedFanOut(fanOutProps.maxConcurrency());
+    }
+
+    /**
+     * Drives the async client's rate-limiter delays, queue timeouts and retry backoff; tasks only hand work
+     * over to futures, so two threads are plenty.
+     */
+    @Bean(name = "upstreamTimer", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService upstreamTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(
+                2, Thread.ofPlatform().name("upstream-timer-", 0).daemon().factory());
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * Writes server-sent events. A send blocks until the client has taken the bytes, so it must not run on the
+     * HTTP client or timer threads that complete the upstream futures.
+     */
+    @Bean(name = "sseExecutor", destroyMethod = "close")
+    public ExecutorService sseExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-send-", 0).factory());
+    }
+
+    @Bean
+    public MeterBinder categoriesRefreshExecutorMetrics(BoundedVirtualThreadExecutor categoriesRefreshExecutor) {
+        return registry -> {
+            Gauge.builder("dikidi.categories-refresh.tasks", categoriesRefreshExecutor,
+                            BoundedVirtualThreadExecutor::queued)
+                    .tag("state", "queued")
+                    .register(registry);
+            Gauge.builder("dikidi.categories-refresh.tasks", categoriesRefreshExecutor,
+                            BoundedVirtualThreadExecutor::active)
+                    .tag("state", "active")
+                    .register(registry);
+            Gauge.builder("dikidi.categories-refresh.max-concurrency", categoriesRefreshExecutor,
+                            BoundedVirtualThreadExecutor::maxConcurrency)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder slotsFanOutMetrics(WindowedFanOut slotsFanOut) {
+        return registry -> {
+            Gauge.builder("dikidi.fan-out.in-flight", slotsFanOut, WindowedFanOut::inFlight)
+                    .register(registry);
+            Gauge.builder("dikidi.fan-out.window", slotsFanOut, WindowedFanOut::window)
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dikidi.fallback")
+public record FallbackProps(
+        @DefaultValue("10000") long maxEntries,
+        @DefaultValue("1h") Duration maxAge
+) {
+}
@@ -0,0 +1,8 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "dikidi.fan-out")
+public record FanOutProps(@DefaultValue("16") int maxConcurrency) {
+}
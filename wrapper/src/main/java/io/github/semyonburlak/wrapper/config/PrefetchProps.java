@@ -0,0 +1,18 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dikidi.prefetch")
+public record PrefetchProps(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("20") int topPairs,
+        @DefaultValue("1m") Duration interval,
+        @DefaultValue("0.2") double jitter,
+        @DefaultValue("14d") Duration horizon,
+        @DefaultValue("2") int reservePermits,
+        @DefaultValue("30s") Duration pairTimeout
+) {
+}
@@ -0,0 +1,13 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dikidi.records-batch")
+public record RecordsBatchProps(
+        @DefaultValue("5ms") Duration window,
+        @DefaultValue("50") int maxSize
+) {
+}
@@ -1,12 +1,32 @@
 package io.github.semyonburlak.wrapper.config;
 
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRateLimiterMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
 import io.github.resilience4j.ratelimiter.RateLimiterConfig;
 import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
 import io.github.resilience4j.retry.RetryConfig;
 import io.github.resilience4j.retry.RetryRegistry;
+import io.github.semyonburlak.wrapper.client.AdaptiveLimiter;
+import io.github.semyonburlak.wrapper.client.FairScheduler;
+import io.github.semyonburlak.wrapper.client.RetryBudget;
+import io.github.semyonburlak.wrapper.client.RetryPolicy;
+import io.github.semyonburlak.wrapper.client.StaleResponseCache;
+import io.github.semyonburlak.wrapper.client.UpstreamPermits;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClientResponseException;
 
 import java.time.Duration;
 
@@ -27,15 +47,119 @@ public class Resilience4jConfig {
         return RateLimiterRegistry.of(config);
     }
 
+    @Bean
+    public RetryBudget retryBudget(RetryProps props, MeterRegistry meterRegistry) {
+        return new RetryBudget(props.budgetRatio(), props.budgetReserve(), meterRegistry);
+    }
+
     @Bean
     public RetryRegistry retryRegistry(
             @Value("${resilience4j.retry.instances.dikidi.max-attempts}") int maxAttempts,
-            @Value("${resilience4j.retry.instances.dikidi.wait-duration}") Duration waitDuration
+            @Value("${resilience4j.retry.instances.dikidi.wait-duration}") Duration waitDuration,
+            RetryProps props,
+            RetryBudget retryBudget
     ) {
+        RetryPolicy policy = new RetryPolicy(waitDuration, props.maxBackoff(), props.maxRetryAfter(), retryBudget);
         RetryConfig config = RetryConfig.custom()
                 .maxAttempts(maxAttempts)
-                .waitDuration(waitDuration)
+                .retryOnException(policy::shouldRetry)
+                .intervalBiFunction(policy::backoffMillis)
                 .build();
         return RetryRegistry.of(config);
     }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(
+            @Value("${resilience4j.circuitbreaker.instances.dikidi.failure-rate-threshold}") float failureRateThreshold,
+            @Value("${resilience4j.circuitbreaker.instances.dikidi.sliding-window-size}") int slidingWindowSize,
+            @Value("${resilience4j.circuitbreaker.instances.dikidi.minimum-number-of-calls}") int minimumNumberOfCalls,
+            @Value("${resilience4j.circuitbreaker.instances.dikidi.wait-duration-in-open-state}")
+            Duration waitDurationInOpenState,
+            @Value("${resilience4j.circuitbreaker.instances.dikidi.permitted-number-of-calls-in-half-open-state}")
+            int permittedCallsInHalfOpenState
+    ) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .recordException(Resilience4jConfig::isUpstreamFailure)
+                .ignoreExceptions(RequestNotPermitted.class, BulkheadFullException.class)
+                .build();
+        return CircuitBreakerRegistry.of(config);
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(
+            @Value("${resilience4j.bulkhead.instances.dikidi.max-concurrent-calls}") int maxConcurrentCalls,
+            @Value("${resilience4j.bulkhead.instances.dikidi.max-wait-duration}") Duration maxWaitDuration
+    ) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWaitDuration)
+                .build();
+        return BulkheadRegistry.of(config);
+    }
+
+    @Bean
+    public StaleResponseCache staleResponseCache(FallbackProps props) {
+        return new StaleResponseCache(props.maxEntries(), props.maxAge());
+    }
+
+    @Bean
+    public AdaptiveLimiter adaptiveLimiter(
+            RateLimiterRegistry rateLimiterRegistry, AdaptiveLimitProps props, MeterRegistry meterRegistry) {
+        return new AdaptiveLimiter(rateLimiterRegistry.rateLimiter("dikidi"), props, meterRegistry);
+    }
+
+    @Bean
+    public UpstreamPermits upstreamPermits(
+            RateLimiterRegistry rateLimiterRegistry,
+            AdaptiveLimiter adaptiveLimiter,
+            BulkheadRegistry bulkheadRegistry) {
+        return new UpstreamPermits(
+                rateLimiterRegistry.rateLimiter("dikidi"), adaptiveLimiter, bulkheadRegistry.bulkhead("dikidi"));
+    }
+
+    @Bean
+    public FairScheduler fairScheduler(
+            RateLimiterRegistry rateLimiterRegistry, SchedulerProps props, MeterRegistry meterRegistry) {
+        return new FairScheduler(
+                rateLimiterRegistry.rateLimiter("dikidi"),
+                props.maxInFlightPerOrigin(),
+                props.shedQueueDepth(),
+                meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder rateLimiterMetrics(RateLimiterRegistry rateLimiterRegistry) {
+        return TaggedRateLimiterMetrics.ofRateLimiterRegistry(rateLimiterRegistry);
+    }
+
+    @Bean
+    public MeterBinder retryMetrics(RetryRegistry retryRegistry) {
+        return TaggedRetryMetrics.ofRetryRegistry(retryRegistry);
+    }
+
+    @Bean
+    public MeterBinder circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry);
+    }
+
+    @Bean
+    public MeterBinder bulkheadMetrics(BulkheadRegistry bulkheadRegistry) {
+        return TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry);
+    }
+
+    /**
+     * Only connection errors, 5xx and 429 count against the breaker; other 4xx are answers, not outages.
+     */
+    private static boolean isUpstreamFailure(Throwable e) {
+        if (e instanceof RestClientResponseException response) {
+            return response.getStatusCode().is5xxServerError()
+                    || response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return true;
+    }
 }
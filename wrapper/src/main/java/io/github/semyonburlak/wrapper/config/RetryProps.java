@@ -0,0 +1,15 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dikidi.retry")
+public record RetryProps(
+        @DefaultValue("5s") Duration maxBackoff,
+        @DefaultValue("10s") Duration maxRetryAfter,
+        @DefaultValue("0.1") double budgetRatio,
+        @DefaultValue("10") int budgetReserve
+) {
+}
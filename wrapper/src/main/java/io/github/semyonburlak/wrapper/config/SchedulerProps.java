@@ -0,0 +1,11 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "dikidi.scheduler")
+public record SchedulerProps(
+        @DefaultValue("8") int maxInFlightPerOrigin,
+        @DefaultValue("32") int shedQueueDepth
+) {
+}
@@ -0,0 +1,14 @@
+package io.github.semyonburlak.wrapper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "dikidi.snapshot")
+public record SnapshotProps(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("cache-snapshot.bin") String path,
+        @DefaultValue("5m") Duration interval
+) {
+}
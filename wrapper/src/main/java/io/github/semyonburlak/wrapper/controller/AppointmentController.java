@@ -15,6 +15,7 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
@@ -53,6 +54,20 @@ public class AppointmentController {
         return appointmentService.getRecordsData(companyId, recordId, token);
     }
 
+    @GetMapping("/records_info/batch")
+    public DikidiRecordsData getRecordsInfoBatch(
+            @RequestParam Long companyId,
+            @RequestParam List<Long> recordIds,
+            HttpServletRequest request
+    ) {
+        String token = extractToken(request);
+        if (recordIds.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "recordIds must not be empty");
+        }
+
+        return appointmentService.getRecordsData(companyId, recordIds, token);
+    }
+
     private static @NonNull String extractToken(HttpServletRequest request) {
         String token = null;
         if (request.getCookies() != null) {
@@ -2,33 +2,176 @@ package io.github.semyonburlak.wrapper.controller;
 
 import io.github.semyonburlak.dto.CategoryDto;
 import io.github.semyonburlak.dto.MasterDto;
+import io.github.semyonburlak.wrapper.dto.SlotTable;
+import io.github.semyonburlak.wrapper.dto.TimesPage;
+import io.github.semyonburlak.wrapper.exception.DikidiApiException;
 import io.github.semyonburlak.wrapper.service.BookingCatalogService;
+import io.github.semyonburlak.wrapper.util.TimesCursor;
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-@RequiredArgsConstructor
 @RestController
+@Slf4j
 @RequestMapping("/catalog")
 public class BookingCatalogController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final int DEFAULT_HORIZON_MONTHS = 6;
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(2);
+
     private final BookingCatalogService bookingCatalogService;
+    private final CatalogResponseWriter responseWriter;
+    private final Executor sseExecutor;
+
+    public BookingCatalogController(
+            BookingCatalogService bookingCatalogService,
+            CatalogResponseWriter responseWriter,
+            @Qualifier("sseExecutor") Executor sseExecutor) {
+        this.bookingCatalogService = bookingCatalogService;
+        this.responseWriter = responseWriter;
+        this.sseExecutor = sseExecutor;
+    }
 
     @GetMapping("/companies/{companyId}/categories")
-    public List<CategoryDto> getCategories(@PathVariable Long companyId) {
-        return bookingCatalogService.getCategories(companyId);
+    public ResponseEntity<byte[]> getCategories(
+            @PathVariable Long companyId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        List<CategoryDto> categories = bookingCatalogService.getCategories(companyId);
+        return responseWriter.cached(ResponseEntity.ok(), categories, acceptEncoding);
     }
 
     @GetMapping("/companies/{companyId}/services/{serviceId}/times")
-    public Map<LocalDateTime, List<MasterDto>> getAllTimes(
-            @PathVariable long companyId, @PathVariable Long serviceId) {
+    public ResponseEntity<SlotTable> getAllTimes(
+            @PathVariable long companyId,
+            @PathVariable Long serviceId,
+            @RequestParam(required = false) LocalDate from,
+            @RequestParam(required = false) LocalDate to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        TimesCursor position = cursor != null ? TimesCursor.decode(cursor).requireQuery(companyId, serviceId) : null;
+        LocalDate start;
+        LocalDate end;
+        if (position != null) {
+            // The cursor pins the range it was issued for; explicit bounds must repeat it.
+            if (from != null && !from.equals(position.from()) || to != null && !to.equals(position.to())) {
+                throw TimesCursor.invalid("Cursor belongs to another range");
+            }
+            start = position.from();
+            end = position.to();
+        } else {
+            start = from != null ? from : LocalDate.now();
+            end = to != null ? to : start.plusMonths(DEFAULT_HORIZON_MONTHS);
+        }
+        if (end.isBefore(start)) {
+            throw new DikidiApiException(HttpStatus.BAD_REQUEST, "INVALID_RANGE", "'to' must not be before 'from'");
+        }
+        if (limit == null && cursor == null) {
+            SlotTable times = bookingCatalogService.getTimes(companyId, serviceId, start, end);
+            return ResponseEntity.ok().eTag(times.contentHash()).body(times);
+        }
+        if (limit != null && limit < 1) {
+            throw new DikidiApiException(HttpStatus.BAD_REQUEST, "INVALID_LIMIT", "'limit' must be positive");
+        }
+
+        LocalDateTime after = position != null ? position.after() : null;
+        TimesPage page = bookingCatalogService.getTimesPage(
+                companyId, serviceId, start, end, after, limit != null ? limit : DEFAULT_PAGE_LIMIT);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        String etag = page.times().contentHash();
+        if (page.next() != null) {
+            String next = new TimesCursor(companyId, serviceId, start, end, page.next()).encode();
+            response.header(NEXT_CURSOR_HEADER, next);
+            etag += "." + next;
+        }
+        return response.eTag(etag).body(page.times());
+    }
+
+    /**
+     * One {@code slots} event per date that has slots. Events are written on {@code sseExecutor}, one at a time
+     * per stream, and the remaining dates are cancelled as soon as the emitter times out, fails or completes.
+     */
+    @GetMapping(
+            path = "/companies/{companyId}/services/{serviceId}/times/stream",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTimes(@PathVariable long companyId, @PathVariable Long serviceId) {
         LocalDate now = LocalDate.now();
-        return bookingCatalogService.getTimes(companyId, serviceId, now, now.plusMonths(6));
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+        TimesStream stream = new TimesStream(emitter, sseExecutor);
+        CompletableFuture<Void> dates = bookingCatalogService.streamTimes(
+                companyId, serviceId, now, now.plusMonths(DEFAULT_HORIZON_MONTHS), stream::send);
+        emitter.onTimeout(() -> dates.cancel(false));
+        emitter.onError(_ -> dates.cancel(false));
+        emitter.onCompletion(() -> dates.cancel(false));
+        dates.whenComplete((_, ex) -> stream.finish(ex));
+        return emitter;
+    }
+
+    /**
+     * Queues a stream's sends on the executor behind each other, so events keep their order and the emitter is
+     * completed only after the last one has been written.
+     */
+    private static final class TimesStream {
+
+        private final SseEmitter emitter;
+        private final Executor executor;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        TimesStream(SseEmitter emitter, Executor executor) {
+            this.emitter = emitter;
+            this.executor = executor;
+        }
+
+        synchronized void send(LocalDate date, Map<LocalDateTime, List<MasterDto>> slots) {
+            if (!slots.isEmpty()) {
+                tail = tail.thenRunAsync(() -> sendSlots(emitter, date, slots), executor);
+            }
+        }
+
+        synchronized void finish(Throwable ex) {
+            if (ex instanceof CancellationException) {
+                return;
+            }
+            tail = tail.whenCompleteAsync((_, _) -> {
+                if (ex == null) {
+                    emitter.complete();
+                } else {
+                    emitter.completeWithError(ex);
+                }
+            }, executor);
+        }
+    }
+
+    private static void sendSlots(SseEmitter emitter, LocalDate date, Map<LocalDateTime, List<MasterDto>> slots) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(date.toString())
+                    .name("slots")
+                    .data(slots, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Times stream closed before date {} was sent: {}", date, e.getMessage());
+        }
     }
 }
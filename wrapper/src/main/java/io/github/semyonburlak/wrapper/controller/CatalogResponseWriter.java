@@ -0,0 +1,90 @@
+package io.github.semyonburlak.wrapper.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.semyonburlak.wrapper.config.CompressionProps;
+import io.github.semyonburlak.wrapper.util.ContentHash;
+import jakarta.annotation.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes catalog bodies as JSON, gzipped when the client accepts it and the body reaches the size threshold,
+ * with a strong ETag per representation.
+ * Encodings of values held by the service caches are kept per instance (weak keys), so a repeat hit is neither
+ * re-serialized nor re-compressed, and a matching {@code If-None-Match} is answered from the stored tag alone.
+ */
+@Component
+public class CatalogResponseWriter {
+
+    static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final long minCompressSize;
+    private final Cache<Object, EncodedBody> encodedBodies;
+
+    public CatalogResponseWriter(ObjectMapper objectMapper, CompressionProps props) {
+        this.objectMapper = objectMapper;
+        this.minCompressSize = props.minSize().toBytes();
+        this.encodedBodies = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(props.maxCachedBodies())
+                .build();
+    }
+
+    public ResponseEntity<byte[]> cached(
+            ResponseEntity.BodyBuilder response, Object value, @Nullable String acceptEncoding) {
+        return write(response, encodedBodies.get(value, this::encode), acceptEncoding);
+    }
+
+    private ResponseEntity<byte[]> write(
+            ResponseEntity.BodyBuilder response, EncodedBody body, @Nullable String acceptEncoding) {
+        response.contentType(MediaType.APPLICATION_JSON).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (body.gzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .eTag(body.etag() + "-" + GZIP)
+                    .body(body.gzip());
+        }
+        return response.eTag(body.etag()).body(body.json());
+    }
+
+    private EncodedBody encode(Object value) {
+        byte[] json = objectMapper.writeValueAsBytes(value);
+        return new EncodedBody(json, json.length >= minCompressSize ? gzip(json) : null, ContentHash.of(json));
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase(GZIP) || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    private record EncodedBody(byte[] json, @Nullable byte[] gzip, String etag) {
+    }
+}
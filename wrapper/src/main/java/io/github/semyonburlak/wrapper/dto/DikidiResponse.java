@@ -19,6 +19,8 @@ public record DikidiResponse<T>(
     private static final Map<String, HttpStatus> INFRA_ERRORS = Map.of(
             "RATE_LIMITED", HttpStatus.TOO_MANY_REQUESTS,
             "NETWORK", HttpStatus.SERVICE_UNAVAILABLE,
+            "CIRCUIT_OPEN", HttpStatus.SERVICE_UNAVAILABLE,
+            "BULKHEAD_FULL", HttpStatus.SERVICE_UNAVAILABLE,
             "NULL_ROOT", HttpStatus.BAD_GATEWAY,
             "DATA_PARSE_ERROR", HttpStatus.BAD_GATEWAY
     );
@@ -0,0 +1,323 @@
+package io.github.semyonburlak.wrapper.dto;
+
+import io.github.semyonburlak.dto.MasterDto;
+import io.github.semyonburlak.wrapper.util.ContentHash;
+import jakarta.annotation.Nullable;
+import tools.jackson.databind.annotation.JsonSerialize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only, time-ordered slot map backed by primitive arrays: one epoch-minute and one master index per
+ * (slot, master) pair, sorted by minute, plus a dictionary of the distinct masters.
+ * Map views materialize entries on demand; {@link SlotTableSerializer} writes JSON straight from the arrays.
+ */
+@JsonSerialize(using = SlotTableSerializer.class)
+public final class SlotTable extends AbstractMap<LocalDateTime, List<MasterDto>> {
+
+    private static final SlotTable EMPTY = new SlotTable(new int[0], new int[0], new MasterDto[0]);
+
+    private final int[] minutes;
+    private final int[] masterIndex;
+    private final MasterDto[] masters;
+    private final int slots;
+    @Nullable
+    private String contentHash;
+
+    private SlotTable(int[] minutes, int[] masterIndex, MasterDto[] masters) {
+        this.minutes = minutes;
+        this.masterIndex = masterIndex;
+        this.masters = masters;
+        this.slots = countDistinct(minutes);
+    }
+
+    public static SlotTable empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Unions the tables, keeping only slots strictly after {@code after} when it is given.
+     * Masters of a slot are ordered by where each master first appears across the tables.
+     */
+    public static SlotTable merge(List<SlotTable> tables, @Nullable LocalDateTime after) {
+        Builder builder = new Builder();
+        for (SlotTable table : tables) {
+            builder.addAll(table, after);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The first {@code limit} slots of this table.
+     */
+    public SlotTable head(int limit) {
+        if (limit >= slots) {
+            return this;
+        }
+        int end = 0;
+        for (int seen = 0; end < minutes.length; end++) {
+            if ((end == 0 || minutes[end] != minutes[end - 1]) && ++seen > limit) {
+                break;
+            }
+        }
+        return new SlotTable(Arrays.copyOf(minutes, end), Arrays.copyOf(masterIndex, end), masters);
+    }
+
+    public LocalDateTime lastKey() {
+        if (minutes.length == 0) {
+            throw new NoSuchElementException();
+        }
+        return toDateTime(minutes[minutes.length - 1]);
+    }
+
+    /**
+     * Digest of the slots and masters in serialization order; equal tables serialize to equal JSON.
+     */
+    public String contentHash() {
+        String hash = contentHash;
+        if (hash == null) {
+            MessageDigest digest = ContentHash.newDigest();
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            for (MasterDto master : masters) {
+                digest.update(buffer.clear().putLong(master.id()).array());
+                digest.update((byte) (master.username() == null ? 0 : 1));
+                if (master.username() != null) {
+                    digest.update(master.username().getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0);
+            }
+            for (int i = 0; i < minutes.length; i++) {
+                digest.update(buffer.clear().putInt(minutes[i]).putInt(masterIndex[i]).array());
+            }
+            hash = ContentHash.toHex(digest);
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Number of (slot, master) pairs.
+     */
+    public int entries() {
+        return minutes.length;
+    }
+
+    public int minute(int entry) {
+        return minutes[entry];
+    }
+
+    public int masterIndex(int entry) {
+        return masterIndex[entry];
+    }
+
+    public MasterDto master(int entry) {
+        return masters[masterIndex[entry]];
+    }
+
+    /**
+     * The master dictionary that {@link #masterIndex} points into.
+     */
+    public List<MasterDto> masters() {
+        return Collections.unmodifiableList(Arrays.asList(masters));
+    }
+
+    @Override
+    public int size() {
+        return slots;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @Nullable
+    public List<MasterDto> get(Object key) {
+        int from = indexOf(key);
+        return from < 0 ? null : mastersFrom(from);
+    }
+
+    @Override
+    public Set<Entry<LocalDateTime, List<MasterDto>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<LocalDateTime, List<MasterDto>>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < minutes.length;
+                    }
+
+                    @Override
+                    public Entry<LocalDateTime, List<MasterDto>> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int from = next;
+                        List<MasterDto> slotMasters = mastersFrom(from);
+                        next += slotMasters.size();
+                        return new SimpleImmutableEntry<>(toDateTime(minutes[from]), slotMasters);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return slots;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof LocalDateTime dateTime)) {
+            return -1;
+        }
+        long epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
+        if (epochSecond % 60 != 0) {
+            return -1;
+        }
+        int minute = toMinute(dateTime);
+        int index = Arrays.binarySearch(minutes, minute);
+        if (index < 0) {
+            return -1;
+        }
+        while (index > 0 && minutes[index - 1] == minute) {
+            index--;
+        }
+        return index;
+    }
+
+    private List<MasterDto> mastersFrom(int from) {
+        int to = from + 1;
+        while (to < minutes.length && minutes[to] == minutes[from]) {
+            to++;
+        }
+        MasterDto[] slotMasters = new MasterDto[to - from];
+        for (int i = from; i < to; i++) {
+            slotMasters[i - from] = master(i);
+        }
+        return List.of(slotMasters);
+    }
+
+    static int toMinute(LocalDateTime dateTime) {
+        return Math.toIntExact(Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+
+    static LocalDateTime toDateTime(int minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private static int countDistinct(int[] minutes) {
+        int distinct = 0;
+        for (int i = 0; i < minutes.length; i++) {
+            if (i == 0 || minutes[i] != minutes[i - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Collects (slot, master) pairs in any order; {@link #build()} sorts them and drops duplicates.
+     */
+    public static final class Builder {
+
+        private final Map<MasterDto, Integer> dictionary = new HashMap<>();
+        private MasterDto[] masters = new MasterDto[4];
+        private long[] pairs = new long[16];
+        private int size;
+
+        private Builder() {
+        }
+
+        public int master(MasterDto master) {
+            Integer index = dictionary.get(master);
+            if (index != null) {
+                return index;
+            }
+            int added = dictionary.size();
+            if (added == masters.length) {
+                masters = Arrays.copyOf(masters, added * 2);
+            }
+            masters[added] = master;
+            dictionary.put(master, added);
+            return added;
+        }
+
+        public Builder add(LocalDateTime dateTime, int master) {
+            return add(toMinute(dateTime), master);
+        }
+
+        public Builder add(int epochMinute, int master) {
+            if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, size * 2);
+            }
+            pairs[size++] = (long) epochMinute << 32 | master;
+            return this;
+        }
+
+        /**
+         * Adds the slots of {@code table} strictly after {@code after} when it is given, remapping its masters
+         * into this builder's dictionary.
+         */
+        public Builder addAll(SlotTable table, @Nullable LocalDateTime after) {
+            long afterSecond = after == null ? Long.MIN_VALUE : after.toEpochSecond(ZoneOffset.UTC);
+            int[] remap = new int[table.masters.length];
+            for (int i = 0; i < remap.length; i++) {
+                remap[i] = master(table.masters[i]);
+            }
+            for (int i = 0; i < table.minutes.length; i++) {
+                if (table.minutes[i] * 60L > afterSecond) {
+                    add(table.minutes[i], remap[table.masterIndex[i]]);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * May be called again after adding more pairs; each call builds from everything added so far.
+         */
+        public SlotTable build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            Arrays.sort(pairs, 0, size);
+            int[] minutes = new int[size];
+            int[] masterIndex = new int[size];
+            int entries = 0;
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && pairs[i] == pairs[i - 1]) {
+                    continue;
+                }
+                minutes[entries] = (int) (pairs[i] >> 32);
+                masterIndex[entries] = (int) pairs[i];
+                entries++;
+            }
+            return new SlotTable(
+                    Arrays.copyOf(minutes, entries),
+                    Arrays.copyOf(masterIndex, entries),
+                    Arrays.copyOf(masters, dictionary.size()));
+        }
+    }
+}
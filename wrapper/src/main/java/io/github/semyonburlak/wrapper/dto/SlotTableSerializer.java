@@ -0,0 +1,79 @@
+package io.github.semyonburlak.wrapper.dto;
+
+import io.github.semyonburlak.dto.MasterDto;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueSerializer;
+
+import java.time.LocalDate;
+
+/**
+ * Writes a {@link SlotTable} in the same shape as a {@code Map<LocalDateTime, List<MasterDto>>}
+ * ({@code {"2024-01-15T10:00":[{"id":1,"username":"Alice"}]}}) without materializing map entries.
+ */
+public class SlotTableSerializer extends ValueSerializer<SlotTable> {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Override
+    public void serialize(SlotTable table, JsonGenerator gen, SerializationContext ctxt) {
+        gen.writeStartObject();
+        char[] key = new char[16];
+        long day = Long.MIN_VALUE;
+        for (int i = 0; i < table.entries(); i++) {
+            int minute = table.minute(i);
+            if (i == 0 || minute != table.minute(i - 1)) {
+                if (i > 0) {
+                    gen.writeEndArray();
+                }
+                long minuteDay = Math.floorDiv(minute, MINUTES_PER_DAY);
+                if (minuteDay != day) {
+                    day = minuteDay;
+                    writeDate(key, LocalDate.ofEpochDay(day));
+                }
+                writeTime(key, Math.floorMod(minute, MINUTES_PER_DAY));
+                gen.writeName(key[0] == 0 ? SlotTable.toDateTime(minute).toString() : new String(key));
+                gen.writeStartArray();
+            }
+            MasterDto master = table.master(i);
+            gen.writeStartObject();
+            gen.writeNumberProperty("id", master.id());
+            gen.writeStringProperty("username", master.username());
+            gen.writeEndObject();
+        }
+        if (table.entries() > 0) {
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Fills {@code yyyy-MM-dd} into the buffer, or marks it unusable for years outside {@code LocalDateTime}'s
+     * plain four-digit form.
+     */
+    private static void writeDate(char[] key, LocalDate date) {
+        int year = date.getYear();
+        if (year < 1000 || year > 9999) {
+            key[0] = 0;
+            return;
+        }
+        digits(key, 0, year / 100);
+        digits(key, 2, year % 100);
+        key[4] = '-';
+        digits(key, 5, date.getMonthValue());
+        key[7] = '-';
+        digits(key, 8, date.getDayOfMonth());
+        key[10] = 'T';
+    }
+
+    private static void writeTime(char[] key, int minuteOfDay) {
+        digits(key, 11, minuteOfDay / 60);
+        key[13] = ':';
+        digits(key, 14, minuteOfDay % 60);
+    }
+
+    private static void digits(char[] buffer, int at, int value) {
+        buffer[at] = (char) ('0' + value / 10);
+        buffer[at + 1] = (char) ('0' + value % 10);
+    }
+}
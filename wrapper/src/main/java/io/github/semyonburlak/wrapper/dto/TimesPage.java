@@ -0,0 +1,8 @@
+package io.github.semyonburlak.wrapper.dto;
+
+import jakarta.annotation.Nullable;
+
+import java.time.LocalDateTime;
+
+public record TimesPage(SlotTable times, @Nullable LocalDateTime next) {
+}
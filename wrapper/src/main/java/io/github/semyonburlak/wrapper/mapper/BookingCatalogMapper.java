@@ -1,25 +1,27 @@
 package io.github.semyonburlak.wrapper.mapper;
 
+import com.github.benmanes.caffeine.cache.Interner;
 import io.github.semyonburlak.dto.CategoryDto;
 import io.github.semyonburlak.dto.MasterDto;
 import io.github.semyonburlak.dto.ServiceDto;
+import io.github.semyonburlak.wrapper.dto.SlotTable;
 import io.github.semyonburlak.wrapper.dto.dikidi.*;
+import io.github.semyonburlak.wrapper.util.SlotTimeParser;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 @Component
 @Slf4j
 public class BookingCatalogMapper {
 
-    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Every date and company request maps the same masters and services again; interning lets cached results
+    // share one instance per distinct value, and the weak pool drops it once no cache or response holds it.
+    private final Interner<MasterDto> masterPool = Interner.newWeakInterner();
+    private final Interner<ServiceDto> servicePool = Interner.newWeakInterner();
+    private final Interner<CategoryDto> categoryPool = Interner.newWeakInterner();
 
     public List<CategoryDto> toCategoryDtoList(DikidiServicesData data) {
         if (data == null || data.list() == null) {
@@ -33,11 +35,26 @@ public class BookingCatalogMapper {
 
     private CategoryDto toCategoryDto(DikidiCategory category) {
         List<ServiceDto> services = category.services().stream().map(this::toServiceDto).toList();
-        return new CategoryDto(category.id(), category.name(), services);
+        return categoryPool.intern(new CategoryDto(category.id(), category.name(), services));
     }
 
     private ServiceDto toServiceDto(DikidiService service) {
-        return new ServiceDto(service.id(), service.name());
+        return servicePool.intern(new ServiceDto(service.id(), service.name()));
+    }
+
+    /**
+     * The same categories with every category and service replaced by its pooled instance, for values that were
+     * not built by this mapper, such as those read back from a cache snapshot.
+     */
+    public List<CategoryDto> intern(List<CategoryDto> categories) {
+        return categories.stream().map(this::intern).toList();
+    }
+
+    private CategoryDto intern(CategoryDto category) {
+        List<ServiceDto> services = category.services() == null
+                ? null
+                : category.services().stream().map(servicePool::intern).toList();
+        return categoryPool.intern(new CategoryDto(category.id(), category.name(), services));
     }
 
     public List<LocalDate> toLocalDateList(DikidiDatesTrue dikidiDatesTrue) {
@@ -45,39 +62,34 @@ public class BookingCatalogMapper {
             log.warn("DatesTrue empty");
             return List.of();
         }
-        List<LocalDate> list = dikidiDatesTrue.datesTrue().stream().map(LocalDate::parse).toList();
+        List<LocalDate> list = dikidiDatesTrue.datesTrue().stream().map(SlotTimeParser::parseDate).toList();
         log.info("Mapped {} available dates", list.size());
         return list;
     }
 
-    public Map<LocalDateTime, List<MasterDto>> toTimeMap(DikidiSlotsData data) {
+    public SlotTable toTimeMap(DikidiSlotsData data) {
         if (data == null || data.masters() == null || data.times() == null) {
             log.warn("SlotsData empty");
-            return Map.of();
+            return SlotTable.empty();
         }
 
-        Map<LocalDateTime, List<MasterDto>> slots = new TreeMap<>();
+        SlotTable.Builder slots = SlotTable.builder();
         data.times().forEach((masterId, times) -> addMasterSlots(data, masterId, times, slots));
-        log.info("Mapped {} time slots for {} masters", slots.size(), data.masters().size());
-        return slots;
+        SlotTable table = slots.build();
+        log.info("Mapped {} time slots for {} masters", table.size(), data.masters().size());
+        return table;
     }
 
     private void addMasterSlots(
             DikidiSlotsData data,
             String masterId,
             List<String> times,
-            Map<LocalDateTime, List<MasterDto>> slots) {
+            SlotTable.Builder slots) {
         DikidiMaster master = data.masters().get(masterId);
         if (master == null) {
             return;
         }
-        MasterDto masterDto = new MasterDto(master.id(), master.username());
-        times.forEach(s -> addSlot(slots, LocalDateTime.parse(s, SLOT_FORMAT), masterDto));
-    }
-
-    private void addSlot(
-            Map<LocalDateTime, List<MasterDto>> slots, LocalDateTime dateTime, MasterDto masterDto
-    ) {
-        slots.computeIfAbsent(dateTime, _ -> new ArrayList<>()).add(masterDto);
+        int masterIndex = slots.master(masterPool.intern(new MasterDto(master.id(), master.username())));
+        times.forEach(s -> slots.add(SlotTimeParser.parseEpochMinute(s), masterIndex));
     }
 }
@@ -2,36 +2,73 @@ package io.github.semyonburlak.wrapper.service;
 
 
 import io.github.semyonburlak.dto.AppointmentPageDto;
+import io.github.semyonburlak.wrapper.client.CallContext;
 import io.github.semyonburlak.wrapper.client.DikidiHttpClient;
+import io.github.semyonburlak.wrapper.client.Priority;
+import io.github.semyonburlak.wrapper.config.RecordsBatchProps;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiRecordsData;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiRecordsInfo;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiTimeReservation;
-import lombok.RequiredArgsConstructor;
+import io.github.semyonburlak.wrapper.exception.DikidiApiException;
+import io.github.semyonburlak.wrapper.util.MicroBatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AppointmentService {
 
+    private static final String RECORDS_INFO_PATH = "/mobile/ajax/newrecord/records_info";
+
     @Value("${spring.mvc.format.date-time}")
     private String dateTimePattern;
 
     private final DikidiHttpClient dikidiHttpClient;
+    private final AuthService authService;
+    private final int maxRecordIds;
+    private final MicroBatcher<RecordsKey, Long, DikidiRecordsData> recordsBatcher;
+
+    public AppointmentService(
+            DikidiHttpClient dikidiHttpClient,
+            AuthService authService,
+            RecordsBatchProps recordsBatchProps) {
+        this.dikidiHttpClient = dikidiHttpClient;
+        this.authService = authService;
+        this.maxRecordIds = recordsBatchProps.maxSize();
+        this.recordsBatcher = new MicroBatcher<>(
+                recordsBatchProps.window(),
+                recordsBatchProps.maxSize(),
+                (key, recordIds) -> getRecordsData(key.companyId(), recordIds, key.token()));
+    }
 
+    /**
+     * The user's appointments. A token Dikidi no longer accepts is also dropped from the login cache, so the
+     * next login fetches a fresh one instead of handing the dead token out again.
+     */
     public AppointmentPageDto getAppointments(String token) {
-        return dikidiHttpClient.get(
-                "/mobile/ajax/newrecord/get_records",
-                Map.of("fresh", "new"),
-                token,
-                AppointmentPageDto.class
-        ).resolve(Map.of("400", HttpStatus.UNAUTHORIZED));
+        try {
+            return dikidiHttpClient.get(
+                    "/mobile/ajax/newrecord/get_records",
+                    Map.of("fresh", "new"),
+                    token,
+                    AppointmentPageDto.class
+            ).resolve(Map.of("400", HttpStatus.UNAUTHORIZED));
+        } catch (DikidiApiException e) {
+            if (e.getStatus() == HttpStatus.UNAUTHORIZED) {
+                authService.invalidate(token);
+            }
+            throw e;
+        }
     }
 
     public DikidiTimeReservation getTimeReservation(
@@ -40,34 +77,68 @@ public class AppointmentService {
             Long serviceId,
             LocalDateTime time
     ) {
+        Map<String, String> queryParams = Map.of(
+                "company_id", String.valueOf(companyId),
+                "master_id", String.valueOf(masterId),
+                "services_id[]", String.valueOf(serviceId),
+                "time", time.format(DateTimeFormatter.ofPattern(dateTimePattern))
+        );
         return dikidiHttpClient.get(
                 "/ajax/newrecord/time_reservation",
-                Map.of(
-                        "company_id", String.valueOf(companyId),
-                        "master_id", String.valueOf(masterId),
-                        "services_id[]", String.valueOf(serviceId),
-                        "time", time.format(DateTimeFormatter.ofPattern(dateTimePattern))
-                ),
-                DikidiTimeReservation.class
+                queryParams,
+                DikidiTimeReservation.class,
+                CallContext.of(queryParams, Priority.BOOKING)
         ).resolve(Map.of(
                 "1", HttpStatus.NOT_FOUND,
                 "COMPANY_ERROR", HttpStatus.NOT_FOUND
         ));
     }
 
+    /**
+     * Looks up one record; concurrent lookups for the same company and token share a single upstream call.
+     */
     public DikidiRecordsData getRecordsData(
             Long companyId,
             Long recordId,
             String token
     ) {
+        DikidiRecordsData batch = recordsBatcher.submit(new RecordsKey(companyId, token), recordId);
+        DikidiRecordsData data = new DikidiRecordsData();
+        DikidiRecordsInfo entry = batch.getEntries().get(String.valueOf(recordId));
+        if (entry != null) {
+            data.addEntry(String.valueOf(recordId), entry);
+        }
+        return data;
+    }
+
+    /**
+     * Looks up several records in one upstream call. At most {@code dikidi.records-batch.max-size} distinct ids
+     * are accepted, so a single request cannot build an unbounded query string.
+     */
+    public DikidiRecordsData getRecordsData(
+            Long companyId,
+            Collection<Long> recordIds,
+            String token
+    ) {
+        LinkedHashSet<Long> distinct = new LinkedHashSet<>(recordIds);
+        if (distinct.size() > maxRecordIds) {
+            throw new DikidiApiException(HttpStatus.BAD_REQUEST, "TOO_MANY_RECORDS",
+                    "At most " + maxRecordIds + " record ids per request, got " + distinct.size());
+        }
+        MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        queryParams.add("companyId", String.valueOf(companyId));
+        for (Long recordId : distinct) {
+            queryParams.add("record_id_list[]", String.valueOf(recordId));
+        }
         return dikidiHttpClient.get(
-                "/mobile/ajax/newrecord/records_info",
-                Map.of(
-                        "companyId", String.valueOf(companyId),
-                        "record_id_list[]", String.valueOf(recordId)
-                ),
+                RECORDS_INFO_PATH,
+                queryParams,
                 token,
-                DikidiRecordsData.class
+                DikidiRecordsData.class,
+                CallContext.forCompany(companyId, Priority.INTERACTIVE)
         ).resolve();
     }
+
+    private record RecordsKey(long companyId, String token) {
+    }
 }
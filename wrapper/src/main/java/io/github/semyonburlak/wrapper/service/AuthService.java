@@ -1,32 +1,108 @@
 package io.github.semyonburlak.wrapper.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.semyonburlak.dto.DikidiCookie;
+import io.github.semyonburlak.wrapper.client.CallContext;
 import io.github.semyonburlak.wrapper.client.DikidiHttpClient;
+import io.github.semyonburlak.wrapper.client.Priority;
+import io.github.semyonburlak.wrapper.config.CacheProps;
 import io.github.semyonburlak.wrapper.dto.DikidiResponse;
 import io.github.semyonburlak.wrapper.dto.dikidi.AuthCallback;
 import io.github.semyonburlak.wrapper.exception.DikidiApiException;
-import lombok.RequiredArgsConstructor;
+import io.github.semyonburlak.wrapper.util.ContentHash;
+import io.github.semyonburlak.wrapper.util.SetCookieParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.MultiValueMap;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Logs in against Dikidi and keeps the issued {@code token} cookie per credential set until shortly before it
+ * expires, and never longer than {@code session-cookie-ttl}. Concurrent logins with the same credentials share
+ * one upstream call, made on the first caller's thread; failed logins are not cached, and a token Dikidi has
+ * rejected is dropped through {@link #invalidate}.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuthService {
 
+    private static final String TOKEN_PREFIX = "token=";
+
     private final DikidiHttpClient authHttpClient;
+    private final AsyncCache<String, DikidiCookie> sessions;
+
+    public AuthService(
+            @Qualifier("authHttpClient") DikidiHttpClient authHttpClient,
+            CacheProps cacheProps,
+            MeterRegistry meterRegistry
+    ) {
+        this.authHttpClient = authHttpClient;
 
+        CacheProps.Sessions props = cacheProps.sessions();
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(props.maxSize())
+                .expireAfter(Expiry.creating((String _, DikidiCookie cookie) -> lifetime(cookie, props)))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "sessions");
+    }
+
+    /**
+     * The {@code Set-Cookie} header carrying the session token, reused from an earlier login with the same
+     * form body while it is still valid.
+     */
     public String login(MultiValueMap<String, String> body) {
+        String key = credentialKey(body);
+        CompletableFuture<DikidiCookie> created = new CompletableFuture<>();
+        CompletableFuture<DikidiCookie> existing = sessions.asMap().putIfAbsent(key, created);
+        DikidiCookie cookie;
+        if (existing != null) {
+            cookie = join(existing);
+        } else {
+            try {
+                cookie = fetchToken(body);
+            } catch (RuntimeException | Error e) {
+                sessions.asMap().remove(key, created);
+                created.completeExceptionally(e);
+                throw e;
+            }
+            created.complete(cookie);
+        }
+        return SetCookieParser.withRemainingMaxAge(cookie, Instant.now());
+    }
+
+    /**
+     * Forgets every cached session holding {@code token}, given as the cookie value or as {@code token=value},
+     * so the next login with those credentials goes upstream again.
+     */
+    public void invalidate(String token) {
+        String pair = token.startsWith(TOKEN_PREFIX) ? token : TOKEN_PREFIX + token;
+        sessions.synchronous().asMap().values().removeIf(cookie -> cookiePair(cookie).equals(pair));
+    }
+
+    private DikidiCookie fetchToken(MultiValueMap<String, String> body) {
 
         DikidiResponse<AuthCallback> response = authHttpClient.post(
                 "/ajax/user/auth",
                 body,
-                AuthCallback.class
+                AuthCallback.class,
+                CallContext.of(null, Priority.BOOKING)
         );
 
         response.resolve(
@@ -49,12 +125,55 @@ public class AuthService {
             throw new DikidiApiException(HttpStatus.BAD_GATEWAY, "NO_TOKEN", "No token cookie in response");
         }
 
-        return token.get();
+        return SetCookieParser.parse(token.get(), Instant.now());
+    }
+
+    private static Duration lifetime(DikidiCookie cookie, CacheProps.Sessions props) {
+        if (cookie.expiresAt() == null) {
+            return props.sessionCookieTtl();
+        }
+        Duration remaining = Duration.between(Instant.now(), cookie.expiresAt()).minus(props.expiryMargin());
+        if (remaining.isNegative()) {
+            return Duration.ZERO;
+        }
+        return remaining.compareTo(props.sessionCookieTtl()) > 0 ? props.sessionCookieTtl() : remaining;
+    }
+
+    private static DikidiCookie join(CompletableFuture<DikidiCookie> session) {
+        try {
+            return session.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String cookiePair(DikidiCookie cookie) {
+        int end = cookie.value().indexOf(';');
+        return (end < 0 ? cookie.value() : cookie.value().substring(0, end)).trim();
+    }
+
+    /**
+     * Digest of the form fields in key order, so raw credentials are never held as cache keys.
+     */
+    private static String credentialKey(MultiValueMap<String, String> body) {
+        MessageDigest digest = ContentHash.newDigest();
+        new TreeMap<>(body).forEach((name, values) -> {
+            for (String value : values == null ? List.<String>of() : values) {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+        });
+        return ContentHash.toHex(digest);
     }
 
     private Optional<String> extractToken(List<String> setCookies) {
         return setCookies.stream()
-                .filter(cookie -> cookie.trim().startsWith("token="))
+                .filter(cookie -> cookie.trim().startsWith(TOKEN_PREFIX))
                 .findFirst();
     }
 }
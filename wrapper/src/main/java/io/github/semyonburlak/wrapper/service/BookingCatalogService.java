@@ -1,39 +1,103 @@
 package io.github.semyonburlak.wrapper.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
 import io.github.semyonburlak.dto.CategoryDto;
 import io.github.semyonburlak.dto.MasterDto;
+import io.github.semyonburlak.wrapper.client.CallContext;
 import io.github.semyonburlak.wrapper.client.DikidiHttpClient;
+import io.github.semyonburlak.wrapper.client.Priority;
+import io.github.semyonburlak.wrapper.config.CacheProps;
+import io.github.semyonburlak.wrapper.dto.SlotTable;
+import io.github.semyonburlak.wrapper.dto.TimesPage;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiDatesTrue;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiServicesData;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiSlotsData;
 import io.github.semyonburlak.wrapper.exception.DikidiApiException;
 import io.github.semyonburlak.wrapper.mapper.BookingCatalogMapper;
+import io.github.semyonburlak.wrapper.util.WindowedFanOut;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 @Service
 @Slf4j
 public class BookingCatalogService {
 
+    private static final String DATES_TRUE_PATH = "/ajax/newrecord/get_dates_true";
+    // Refusals generated by our own client, not by Dikidi: the date exists, we just did not get to ask.
+    private static final Set<String> LOCAL_REJECTIONS = Set.of("RATE_LIMITED", "BULKHEAD_FULL");
+
     private final DikidiHttpClient dikidiHttpClient;
     private final BookingCatalogMapper mapper;
+    private final LoadingCache<Long, List<CategoryDto>> categoriesCache;
+    private final AsyncCache<SlotKey, SlotTable> slotsCache;
+    private final PopularityTracker popularity;
+    private final WindowedFanOut slotsFanOut;
+    private final Map<SlotKey, Priority> loadPriorities = new ConcurrentHashMap<>();
 
-    public BookingCatalogService(DikidiHttpClient dikidiHttpClient, BookingCatalogMapper mapper) {
+    public BookingCatalogService(
+            DikidiHttpClient dikidiHttpClient,
+            BookingCatalogMapper mapper,
+            @Qualifier("categoriesRefreshExecutor") Executor categoriesRefreshExecutor,
+            CacheProps cacheProps,
+            WindowedFanOut slotsFanOut,
+            PopularityTracker popularity,
+            MeterRegistry meterRegistry
+    ) {
         this.dikidiHttpClient = dikidiHttpClient;
         this.mapper = mapper;
+        this.popularity = popularity;
+        this.slotsFanOut = slotsFanOut;
+
+        CacheProps.Categories categories = cacheProps.categories();
+        this.categoriesCache = Caffeine.newBuilder()
+                .maximumWeight(categories.maxWeight())
+                .weigher((Long _, List<CategoryDto> value) -> weigh(value))
+                .expireAfter(Expiry.writing((Long _, List<CategoryDto> _) -> categories.ttl()))
+                .refreshAfterWrite(categories.refreshAfter())
+                .executor(categoriesRefreshExecutor)
+                .recordStats()
+                .build(this::fetchCategories);
+        CaffeineCacheMetrics.monitor(meterRegistry, categoriesCache, "categories");
+
+        CacheProps.Slots slots = cacheProps.slots();
+        this.slotsCache = Caffeine.newBuilder()
+                .maximumWeight(slots.maxWeight())
+                .weigher((SlotKey _, SlotTable value) -> 1 + value.entries())
+                .expireAfter(Expiry.creating((SlotKey key, SlotTable _) ->
+                        key.date().equals(LocalDate.now()) ? slots.todayTtl() : slots.ttl()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, slotsCache, "slots");
     }
 
     public List<CategoryDto> getCategories(long companyId) {
+        return categoriesCache.get(companyId);
+    }
+
+    private List<CategoryDto> fetchCategories(long companyId) {
         DikidiServicesData data = dikidiHttpClient.get(
                         "/mobile/ajax/newrecord/company_services",
                         Map.of("company", String.valueOf(companyId)),
@@ -44,61 +108,215 @@ public class BookingCatalogService {
 
     public List<LocalDate> getDatesTrue(long companyId, long serviceId, LocalDate from, LocalDate to) {
         DikidiDatesTrue data = dikidiHttpClient.get(
-                        "/ajax/newrecord/get_dates_true",
-                        Map.of("company_id", String.valueOf(companyId),
-                                "services_id[]", String.valueOf(serviceId),
-                                "date_from", from.toString(),
-                                "date_to", to.toString()),
-                        DikidiDatesTrue.class)
+                        DATES_TRUE_PATH, datesTrueParams(companyId, serviceId, from, to), DikidiDatesTrue.class)
                 .resolve(Map.of("1", HttpStatus.NOT_FOUND));
         return mapper.toLocalDateList(data);
     }
 
-    public Map<LocalDateTime, List<MasterDto>> getTimes(
-            long companyId, long serviceId, LocalDate from, LocalDate to) {
+    private static Map<String, String> datesTrueParams(long companyId, long serviceId, LocalDate from, LocalDate to) {
+        return Map.of("company_id", String.valueOf(companyId),
+                "services_id[]", String.valueOf(serviceId),
+                "date_from", from.toString(),
+                "date_to", to.toString());
+    }
+
+    /**
+     * All slots of the range. Dates are fetched at most {@code dikidi.fan-out.max-concurrency} at a time: the
+     * scheduler sheds BULK calls beyond its queue depth and expires waiters after the limiter timeout, so
+     * submitting a long range at once would lose most of its dates.
+     */
+    public SlotTable getTimes(long companyId, long serviceId, LocalDate from, LocalDate to) {
+        popularity.record(companyId, serviceId);
         List<LocalDate> datesTrue = getDatesTrue(companyId, serviceId, from, to);
+        CallContext context = CallContext.forCompany(companyId, Priority.BULK);
 
-        List<CompletableFuture<Map<LocalDateTime, List<MasterDto>>>> futures = datesTrue.stream()
-                .map(date -> CompletableFuture
-                        .supplyAsync(() -> getTimesByDate(companyId, serviceId, date))
-                        .exceptionally(ex -> {
-                            log.warn("Error getting times: companyId={}, serviceId={}, date={}, error={}",
-                                    companyId, serviceId, date, ex.getMessage());
-                            return Map.of();
-                        }))
+        List<SlotTable> tables = join(slotsFanOut.map(
+                datesTrue, date -> getTimesByDateAsync(companyId, serviceId, date, context)));
+        return SlotTable.merge(tables, null);
+    }
+
+    public TimesPage getTimesPage(
+            long companyId,
+            long serviceId,
+            LocalDate from,
+            LocalDate to,
+            @Nullable LocalDateTime after,
+            int limit) {
+        popularity.record(companyId, serviceId);
+        List<LocalDate> datesTrue = getDatesTrue(companyId, serviceId, from, to).stream()
+                .filter(date -> after == null || !date.isBefore(after.toLocalDate()))
                 .toList();
+        CallContext context = CallContext.forCompany(companyId, Priority.INTERACTIVE);
+
+        SlotTable.Builder merged = SlotTable.builder();
+        SlotTable times = SlotTable.empty();
+        int fetched = 0;
+        int window = 2;
+        while (fetched < datesTrue.size() && times.size() < limit) {
+            List<CompletableFuture<SlotTable>> futures = datesTrue
+                    .subList(fetched, Math.min(fetched + window, datesTrue.size())).stream()
+                    .map(date -> getTimesByDateAsync(companyId, serviceId, date, context))
+                    .toList();
+            futures.forEach(future -> merged.addAll(join(future), after));
+            times = merged.build();
+            fetched += futures.size();
+            window *= 2;
+        }
 
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        boolean truncated = times.size() > limit;
+        times = times.head(limit);
+        LocalDateTime next = (truncated || fetched < datesTrue.size()) && !times.isEmpty() ? times.lastKey() : null;
+        return new TimesPage(times, next);
+    }
 
+    public CompletableFuture<Void> streamTimes(
+            long companyId,
+            long serviceId,
+            LocalDate from,
+            LocalDate to,
+            BiConsumer<LocalDate, Map<LocalDateTime, List<MasterDto>>> sink) {
+        popularity.record(companyId, serviceId);
+        List<LocalDate> datesTrue = getDatesTrue(companyId, serviceId, from, to);
+        CallContext context = CallContext.forCompany(companyId, Priority.BULK);
 
-        Map<LocalDateTime, List<MasterDto>> times = new TreeMap<>();
+        return slotsFanOut.forEach(datesTrue, date ->
+                getTimesByDateAsync(companyId, serviceId, date, context)
+                        .thenAccept(dateTimes -> sink.accept(date, dateTimes)));
+    }
 
-        futures.stream()
-                .map(CompletableFuture::join)
-                .forEach(dateTimes -> dateTimes.forEach(
-                        (dateTime, masters) ->
-                                times.computeIfAbsent(dateTime, _ -> new ArrayList<>())
-                                        .addAll(masters)
-                ));
+    /**
+     * Dates of the range that have slots, fetched at {@link Priority#BULK} without counting towards popularity.
+     */
+    public List<LocalDate> prefetchDates(long companyId, long serviceId, LocalDate from, LocalDate to) {
+        CallContext context = CallContext.forCompany(companyId, Priority.BULK);
+        Map<String, String> params = datesTrueParams(companyId, serviceId, from, to);
+        DikidiDatesTrue data = dikidiHttpClient.get(DATES_TRUE_PATH, params, DikidiDatesTrue.class, context)
+                .resolve(Map.of("1", HttpStatus.NOT_FOUND));
+        return mapper.toLocalDateList(data);
+    }
 
-        return times;
+    /**
+     * Loads the slot cache entry of one date if it is missing, at {@link Priority#BULK} and without counting
+     * towards popularity. The prefetcher calls this one date at a time so it can stop between dates as soon as
+     * live traffic needs the permits.
+     */
+    public CompletableFuture<SlotTable> prefetchTimes(long companyId, long serviceId, LocalDate date) {
+        return getTimesByDateAsync(companyId, serviceId, date, CallContext.forCompany(companyId, Priority.BULK));
     }
 
-    private Map<LocalDateTime, List<MasterDto>> getTimesByDate(
-            long companyId, long serviceId, LocalDate date) {
-        DikidiSlotsData data = dikidiHttpClient.get(
-                        "/mobile/ajax/newrecord/get_datetimes",
-                        Map.of(
-                                "company_id", String.valueOf(companyId),
-                                "service_id[]", String.valueOf(serviceId),
-                                "date", date.toString()),
-                        DikidiSlotsData.class)
-                .resolve(Map.of("400", HttpStatus.NOT_FOUND));
+    /**
+     * Slots of one date. A date that fails upstream is logged and left empty, but one our own client refused
+     * (shed or timed out at the rate limiter, or no bulkhead slot in time) fails the future: the range could have
+     * been answered in full, so a 200 with missing days would be wrong.
+     * <p>
+     * A caller more urgent than the pending load of its date does not wait on it: a BULK prefetch may be shed, and
+     * the INTERACTIVE page joining it would fail with it. It starts its own load, which replaces the pending one in
+     * the cache.
+     */
+    private CompletableFuture<SlotTable> getTimesByDateAsync(
+            long companyId, long serviceId, LocalDate date, CallContext context) {
+        SlotKey key = new SlotKey(companyId, serviceId, date);
+        CompletableFuture<SlotTable> times = slotsCache.get(key, (k, _) -> load(k, context));
+        Priority pending = loadPriorities.get(key);
+        if (!times.isDone() && pending != null && context.priority().compareTo(pending) < 0) {
+            times = load(key, context);
+            slotsCache.put(key, times);
+        }
+        return times
+                .exceptionally(ex -> {
+                    if (unwrap(ex) instanceof DikidiApiException e && LOCAL_REJECTIONS.contains(e.getCode())) {
+                        throw e;
+                    }
+                    log.warn("Error getting times: companyId={}, serviceId={}, date={}, error={}",
+                            companyId, serviceId, date, ex.getMessage());
+                    return SlotTable.empty();
+                });
+    }
+
+    /**
+     * Current categories cache contents with their absolute expiry. Slots are left out: their TTL is shorter than
+     * the snapshot interval, so they would be expired by the time a restarted instance read them.
+     */
+    public CacheSnapshot snapshot() {
+        long now = System.currentTimeMillis();
+        List<CacheSnapshot.Entry<Long, List<CategoryDto>>> categories = new ArrayList<>();
+        VarExpiration<Long, List<CategoryDto>> categoriesExpiry = categoriesCache.policy().expireVariably()
+                .orElseThrow();
+        categoriesCache.asMap().forEach((companyId, value) -> categoriesExpiry.getExpiresAfter(companyId)
+                .ifPresent(ttl -> categories.add(new CacheSnapshot.Entry<>(companyId, value, now + ttl.toMillis()))));
+        return new CacheSnapshot(categories);
+    }
+
+    /**
+     * Seeds the categories cache from a snapshot, keeping each entry's remaining lifetime; expired entries and
+     * companies that were already loaded are skipped. Restored values go through the mapper's interners, so they
+     * share instances with freshly mapped ones. Returns the number of restored entries.
+     */
+    public int restore(CacheSnapshot snapshot) {
+        long now = System.currentTimeMillis();
+        int restored = 0;
+        VarExpiration<Long, List<CategoryDto>> categoriesExpiry = categoriesCache.policy().expireVariably()
+                .orElseThrow();
+        for (CacheSnapshot.Entry<Long, List<CategoryDto>> entry : snapshot.categories()) {
+            long ttl = entry.expiresAtMillis() - now;
+            if (ttl > 0 && categoriesExpiry.putIfAbsent(
+                    entry.key(), mapper.intern(entry.value()), Duration.ofMillis(ttl)) == null) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
         try {
-            return mapper.toTimeMap(data);
-        } catch (DateTimeParseException e) {
-            throw new DikidiApiException(
-                    HttpStatus.BAD_REQUEST, "INVALID_DATETIME_FORMAT", e.getMessage());
+            return future.join();
+        } catch (CompletionException e) {
+            if (unwrap(e) instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private static int weigh(List<CategoryDto> categories) {
+        int weight = 1;
+        for (CategoryDto category : categories) {
+            weight += 1 + (category.services() == null ? 0 : category.services().size());
         }
+        return weight;
+    }
+
+    private CompletableFuture<SlotTable> load(SlotKey key, CallContext context) {
+        loadPriorities.put(key, context.priority());
+        CompletableFuture<SlotTable> load = fetchTimesByDate(key, context);
+        load.whenComplete((_, _) -> loadPriorities.remove(key, context.priority()));
+        return load;
+    }
+
+    private CompletableFuture<SlotTable> fetchTimesByDate(SlotKey key, CallContext context) {
+        return dikidiHttpClient.getAsync(
+                        "/mobile/ajax/newrecord/get_datetimes",
+                        Map.of(
+                                "company_id", String.valueOf(key.companyId()),
+                                "service_id[]", String.valueOf(key.serviceId()),
+                                "date", key.date().toString()),
+                        DikidiSlotsData.class,
+                        context)
+                .thenApply(response -> {
+                    DikidiSlotsData data = response.resolve(Map.of("400", HttpStatus.NOT_FOUND));
+                    try {
+                        return mapper.toTimeMap(data);
+                    } catch (DateTimeParseException e) {
+                        throw new DikidiApiException(
+                                HttpStatus.BAD_REQUEST, "INVALID_DATETIME_FORMAT", e.getMessage());
+                    }
+                });
+    }
+
+    public record SlotKey(long companyId, long serviceId, LocalDate date) {
     }
 }
@@ -0,0 +1,182 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.dto.CategoryDto;
+import io.github.semyonburlak.dto.ServiceDto;
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Categories cache contents with absolute expiry times, stored as a memory-mapped binary file. Slots are not
+ * kept: they live for minutes, less than the snapshot interval, so a restored slot entry would almost always have
+ * expired already.
+ * <p>
+ * Layout (big-endian): magic, version, then a counted list of category entries
+ * ({@code companyId, expiresAt, categories}). Strings are length-prefixed UTF-8 with {@code -1} for null. Files
+ * are written next to the target and moved into place, so a crash mid-write never leaves a torn snapshot.
+ */
+public record CacheSnapshot(List<Entry<Long, List<CategoryDto>>> categories) {
+
+    private static final int MAGIC = 0x444B4353;
+    private static final int VERSION = 2;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // Smallest encoded size of each counted element, used to reject counts the rest of the file cannot hold.
+    private static final int CATEGORY_ENTRY_BYTES = 2 * Long.BYTES + Integer.BYTES;
+    private static final int CATEGORY_BYTES = Long.BYTES + 2 * Integer.BYTES;
+    private static final int NAMED_ID_BYTES = Long.BYTES + Integer.BYTES;
+
+    public record Entry<K, V>(K key, V value, long expiresAtMillis) {
+    }
+
+    public void write(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedOutput out = new MappedOutput(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(categories.size());
+            for (Entry<Long, List<CategoryDto>> entry : categories) {
+                out.putLong(entry.key());
+                out.putLong(entry.expiresAtMillis());
+                writeCategories(out, entry.value());
+            }
+            channel.truncate(out.finish());
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static CacheSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 2 * Integer.BYTES || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " cache snapshot: " + path);
+            }
+            List<Entry<Long, List<CategoryDto>>> categories = new ArrayList<>();
+            for (int i = count(in, in.getInt(), CATEGORY_ENTRY_BYTES); i > 0; i--) {
+                long companyId = in.getLong();
+                long expiresAt = in.getLong();
+                categories.add(new Entry<>(companyId, readCategories(in), expiresAt));
+            }
+            return new CacheSnapshot(categories);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Truncated or corrupt cache snapshot: " + path, e);
+        }
+    }
+
+    private static void writeCategories(MappedOutput out, List<CategoryDto> categories) throws IOException {
+        out.putInt(categories.size());
+        for (CategoryDto category : categories) {
+            out.putLong(category.id());
+            out.putString(category.name());
+            List<ServiceDto> services = category.services();
+            out.putInt(services == null ? -1 : services.size());
+            for (ServiceDto service : services == null ? List.<ServiceDto>of() : services) {
+                out.putLong(service.id());
+                out.putString(service.name());
+            }
+        }
+    }
+
+    private static List<CategoryDto> readCategories(MappedByteBuffer in) throws IOException {
+        int count = count(in, in.getInt(), CATEGORY_BYTES);
+        List<CategoryDto> categories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = in.getLong();
+            String name = getString(in);
+            int serviceCount = in.getInt();
+            List<ServiceDto> services = null;
+            if (serviceCount != -1) {
+                count(in, serviceCount, NAMED_ID_BYTES);
+                services = new ArrayList<>(serviceCount);
+                for (int j = 0; j < serviceCount; j++) {
+                    services.add(new ServiceDto(in.getLong(), getString(in)));
+                }
+            }
+            categories.add(new CategoryDto(id, name, services == null ? null : List.copyOf(services)));
+        }
+        return List.copyOf(categories);
+    }
+
+    @Nullable
+    private static String getString(MappedByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[count(in, length, 1)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The count read just before, checked against the bytes left so a corrupt file cannot make the reader
+     * allocate more than the file could hold.
+     */
+    private static int count(MappedByteBuffer in, int count, int elementBytes) throws IOException {
+        if (count < 0 || count > in.remaining() / elementBytes) {
+            throw new IOException("Count " + count + " before byte " + in.position()
+                    + " does not fit the rest of the cache snapshot");
+        }
+        return count;
+    }
+
+    /**
+     * Sequential writer that maps the file in chunks, growing it as it goes; the caller truncates the tail of
+     * the last chunk to {@link #finish()}.
+     */
+    private static final class MappedOutput {
+
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long base;
+
+        MappedOutput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK_SIZE);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES).putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES).putLong(value);
+        }
+
+        void putString(@Nullable String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length).put(bytes);
+        }
+
+        long finish() {
+            buffer.force();
+            return base + buffer.position();
+        }
+
+        private MappedByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.force();
+                base += buffer.position();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, base, Math.max(CHUNK_SIZE, bytes));
+            }
+            return buffer;
+        }
+    }
+}
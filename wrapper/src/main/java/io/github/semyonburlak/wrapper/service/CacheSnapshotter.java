@@ -0,0 +1,93 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.wrapper.config.SnapshotProps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the categories cache warm across restarts: restores the last snapshot in the background once the context
+ * is up, rewrites it every {@code dikidi.snapshot.interval} and once more on shutdown. Nothing is written until
+ * the restore has finished, so a shutdown during startup cannot replace a good snapshot with near-empty caches.
+ */
+@Component
+@ConditionalOnBooleanProperty("dikidi.snapshot.enabled")
+@Slf4j
+public class CacheSnapshotter implements SmartLifecycle {
+
+    private static final Duration SHUTDOWN_WAIT = Duration.ofSeconds(5);
+
+    private final BookingCatalogService bookingCatalogService;
+    private final Path path;
+    private final Duration interval;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+    private volatile boolean restored;
+
+    public CacheSnapshotter(BookingCatalogService bookingCatalogService, SnapshotProps props) {
+        this.bookingCatalogService = bookingCatalogService;
+        this.path = Path.of(props.path());
+        this.interval = props.interval();
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("cache-snapshot").daemon().factory());
+        executor.execute(this::restore);
+        executor.scheduleWithFixedDelay(this::write, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(SHUTDOWN_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    void restore() {
+        if (Files.exists(path)) {
+            try {
+                int entries = bookingCatalogService.restore(CacheSnapshot.read(path));
+                log.info("Restored {} cache entries from {}", entries, path);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable cache snapshot {}: {}", path, e.getMessage());
+            }
+        }
+        restored = true;
+    }
+
+    void write() {
+        if (!restored) {
+            log.info("Skipping cache snapshot {}: restore has not finished", path);
+            return;
+        }
+        try {
+            CacheSnapshot snapshot = bookingCatalogService.snapshot();
+            snapshot.write(path);
+            log.debug("Wrote {} category entries to {}", snapshot.categories().size(), path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write cache snapshot {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.wrapper.util.CountMinSketch;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks how often each (company, service) pair is asked for slots. Frequencies live in a count-min sketch that
+ * is halved every {@link #SAMPLE_SIZE} requests, so popularity decays; only the best-scoring candidates are kept
+ * as keys, which bounds memory regardless of how many pairs are seen.
+ */
+@Component
+public class PopularityTracker {
+
+    private static final int SKETCH_WIDTH = 1 << 12;
+    private static final int SAMPLE_SIZE = 10 * SKETCH_WIDTH;
+    private static final int MAX_CANDIDATES = 256;
+
+    private final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH);
+    private final Map<ServicePair, Integer> candidates = new HashMap<>();
+    private int sampled;
+
+    public record ServicePair(long companyId, long serviceId) {
+
+        long item() {
+            return companyId * 0x9E3779B97F4A7C15L ^ serviceId;
+        }
+    }
+
+    public synchronized void record(long companyId, long serviceId) {
+        ServicePair pair = new ServicePair(companyId, serviceId);
+        candidates.put(pair, sketch.increment(pair.item()));
+        if (candidates.size() > MAX_CANDIDATES) {
+            candidates.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .ifPresent(coldest -> candidates.remove(coldest.getKey()));
+        }
+        if (++sampled >= SAMPLE_SIZE) {
+            sketch.halve();
+            candidates.replaceAll((_, count) -> count >>> 1);
+            candidates.values().removeIf(count -> count == 0);
+            sampled = 0;
+        }
+    }
+
+    /**
+     * Up to {@code limit} pairs, most requested first.
+     */
+    public synchronized List<ServicePair> top(int limit) {
+        return candidates.entrySet().stream()
+                .sorted(Map.Entry.<ServicePair, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.wrapper.client.FairScheduler;
+import io.github.semyonburlak.wrapper.config.PrefetchProps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps slot data of the most requested (company, service) pairs warm. Each round, at a jittered interval, walks
+ * the {@link PopularityTracker} top list and prefetches one pair and one date at a time. Spare capacity is checked
+ * before every upstream call, so prefetching stops as soon as the scheduler has waiters or the rate limiter is
+ * down to its reserve and live traffic always gets the permits first.
+ */
+@Component
+@ConditionalOnBooleanProperty("dikidi.prefetch.enabled")
+@Slf4j
+public class SlotPrefetcher implements SmartLifecycle {
+
+    private final BookingCatalogService bookingCatalogService;
+    private final PopularityTracker popularity;
+    private final FairScheduler scheduler;
+    private final PrefetchProps props;
+    private final Counter warmed;
+    private final Counter skipped;
+    private final Counter failed;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public SlotPrefetcher(
+            BookingCatalogService bookingCatalogService,
+            PopularityTracker popularity,
+            FairScheduler scheduler,
+            PrefetchProps props,
+            MeterRegistry meterRegistry) {
+        this.bookingCatalogService = bookingCatalogService;
+        this.popularity = popularity;
+        this.scheduler = scheduler;
+        this.props = props;
+        this.warmed = pairs(meterRegistry, "warmed");
+        this.skipped = pairs(meterRegistry, "skipped");
+        this.failed = pairs(meterRegistry, "failed");
+    }
+
+    private static Counter pairs(MeterRegistry registry, String outcome) {
+        return Counter.builder("dikidi.prefetch.pairs")
+                .description("Popular (company, service) pairs considered for slot prefetching")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("slot-prefetch").daemon().factory());
+        running = true;
+        scheduleNext();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void scheduleNext() {
+        if (!running) {
+            return;
+        }
+        double spread = props.jitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        long delay = Math.round(props.interval().toMillis() * (1 + spread));
+        executor.schedule(() -> {
+            try {
+                prefetchRound();
+            } finally {
+                scheduleNext();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    void prefetchRound() {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusDays(props.horizon().toDays());
+        for (PopularityTracker.ServicePair pair : popularity.top(props.topPairs())) {
+            if (!hasSpareCapacity()) {
+                skipped.increment();
+                continue;
+            }
+            try {
+                if (prefetchPair(pair, from, to)) {
+                    warmed.increment();
+                } else {
+                    skipped.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException | RuntimeException e) {
+                failed.increment();
+                log.debug("Prefetch failed for company={}, service={}: {}",
+                        pair.companyId(), pair.serviceId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads the pair's dates one by one within {@code pairTimeout}; false if capacity ran out before the last.
+     */
+    private boolean prefetchPair(PopularityTracker.ServicePair pair, LocalDate from, LocalDate to)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + props.pairTimeout().toNanos();
+        for (LocalDate date : bookingCatalogService.prefetchDates(pair.companyId(), pair.serviceId(), from, to)) {
+            if (!hasSpareCapacity()) {
+                return false;
+            }
+            bookingCatalogService.prefetchTimes(pair.companyId(), pair.serviceId(), date)
+                    .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    private boolean hasSpareCapacity() {
+        return running && scheduler.hasSpareCapacity(props.reservePermits());
+    }
+}
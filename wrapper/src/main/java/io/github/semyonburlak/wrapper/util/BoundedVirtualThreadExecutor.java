@@ -0,0 +1,69 @@
+package io.github.semyonburlak.wrapper.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedVirtualThreadExecutor implements Executor, AutoCloseable {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    public BoundedVirtualThreadExecutor(String name, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queued.incrementAndGet();
+        delegate.execute(() -> {
+            boolean permitted = true;
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                // Interrupted while queued, i.e. on shutdown: still run the task so that whatever waits on it
+                // (typically a CompletableFuture) completes; it sees the interrupt flag and can bail out early.
+                Thread.currentThread().interrupt();
+                permitted = false;
+            }
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                if (permitted) {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    public int active() {
+        return active.get();
+    }
+
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
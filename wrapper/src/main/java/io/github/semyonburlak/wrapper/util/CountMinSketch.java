@@ -0,0 +1,61 @@
+package io.github.semyonburlak.wrapper.util;
+
+/**
+ * Fixed-size frequency estimator: {@code depth} rows of {@code width} counters, each item counted in one cell
+ * per row, estimate is the row minimum. Over-counts on collisions, never under-counts; {@link #halve()} ages all
+ * counts so that recent traffic dominates.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final int[][] counters;
+    private final int mask;
+
+    public CountMinSketch(int width) {
+        if (width < 1 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a positive power of two: " + width);
+        }
+        this.counters = new int[SEEDS.length][width];
+        this.mask = width - 1;
+    }
+
+    /**
+     * Counts one occurrence and returns the item's new estimate.
+     */
+    public synchronized int increment(long item) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            int[] cells = counters[row];
+            int index = index(item, row);
+            if (cells[index] < Integer.MAX_VALUE) {
+                cells[index]++;
+            }
+            estimate = Math.min(estimate, cells[index]);
+        }
+        return estimate;
+    }
+
+    public synchronized int estimate(long item) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            estimate = Math.min(estimate, counters[row][index(item, row)]);
+        }
+        return estimate;
+    }
+
+    public synchronized void halve() {
+        for (int[] cells : counters) {
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] >>>= 1;
+            }
+        }
+    }
+
+    private int index(long item, int row) {
+        long hash = (item + SEEDS[row]) * SEEDS[row];
+        hash ^= hash >>> 29;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.semyonburlak.wrapper.util;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.SequencedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Groups concurrent single-item lookups that share a key into one loader call. The caller that opens a batch loads
+ * it on its own thread; callers that joined the batch block on the shared result.
+ * <p>
+ * A batch opened while no load for its key is running is loaded at once, so a lone lookup pays no added latency.
+ * Only while a load is in flight does the opener wait up to {@code window} (less if the batch fills up) for others
+ * to join. The first caller of a burst therefore always goes alone and batching starts from the second one; the
+ * trade-off favours idle-time latency over the fewest possible upstream calls.
+ * <p>
+ * If loading a batch of several items fails, each caller retries its own item alone, so one bad item only fails
+ * the caller that asked for it.
+ */
+public class MicroBatcher<K, I, R> {
+
+    private final Duration window;
+    private final int maxSize;
+    private final BiFunction<K, SequencedSet<I>, R> loader;
+    private final Map<K, Batch<I, R>> pending = new ConcurrentHashMap<>();
+    private final Map<K, Integer> loading = new ConcurrentHashMap<>();
+
+    public MicroBatcher(Duration window, int maxSize, BiFunction<K, SequencedSet<I>, R> loader) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.window = window;
+        this.maxSize = maxSize;
+        this.loader = loader;
+    }
+
+    /**
+     * The loader's result for the batch that {@code item} ended up in, or for {@code item} alone if that batch
+     * failed.
+     */
+    public R submit(K key, I item) {
+        Batch<I, R> opened = new Batch<>(item, maxSize);
+        while (true) {
+            Batch<I, R> batch = pending.computeIfAbsent(key, _ -> opened);
+            if (batch == opened) {
+                return flush(key, batch, item);
+            }
+            if (batch.add(item, maxSize)) {
+                return await(key, batch, item);
+            }
+            pending.remove(key, batch);
+        }
+    }
+
+    int pending() {
+        return pending.size();
+    }
+
+    private R flush(K key, Batch<I, R> batch, I item) {
+        if (loading.containsKey(key)) {
+            try {
+                batch.full.await(window.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        SequencedSet<I> items = batch.close();
+        pending.remove(key, batch);
+        try {
+            R result = load(key, items);
+            batch.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            batch.result.completeExceptionally(e);
+            if (items.size() == 1) {
+                throw e;
+            }
+            return load(key, single(item));
+        } catch (Error e) {
+            batch.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private R await(K key, Batch<I, R> batch, I item) {
+        try {
+            return batch.result.join();
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof RuntimeException cause)) {
+                throw e;
+            }
+            if (batch.size() == 1) {
+                throw cause;
+            }
+            return load(key, single(item));
+        }
+    }
+
+    private R load(K key, SequencedSet<I> items) {
+        loading.merge(key, 1, Integer::sum);
+        try {
+            return loader.apply(key, items);
+        } finally {
+            loading.computeIfPresent(key, (_, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private static <I> SequencedSet<I> single(I item) {
+        SequencedSet<I> items = new LinkedHashSet<>();
+        items.add(item);
+        return items;
+    }
+
+    private static final class Batch<I, R> {
+
+        private final SequencedSet<I> items = new LinkedHashSet<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private boolean closed;
+
+        Batch(I first, int maxSize) {
+            add(first, maxSize);
+        }
+
+        /**
+         * Adds the item unless the batch has already been closed for loading.
+         */
+        synchronized boolean add(I item, int maxSize) {
+            if (closed) {
+                return false;
+            }
+            items.add(item);
+            if (items.size() >= maxSize) {
+                closed = true;
+                full.countDown();
+            }
+            return true;
+        }
+
+        synchronized SequencedSet<I> close() {
+            closed = true;
+            return new LinkedHashSet<>(items);
+        }
+
+        synchronized int size() {
+            return items.size();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.semyonburlak.wrapper.util;
+
+import java.util.concurrent.Semaphore;
+
+public class ResizableSemaphore extends Semaphore {
+
+    private int size;
+
+    public ResizableSemaphore(int size) {
+        super(size, true);
+        this.size = size;
+    }
+
+    public synchronized void resize(int newSize) {
+        if (newSize > size) {
+            release(newSize - size);
+        } else if (newSize < size) {
+            reducePermits(size - newSize);
+        }
+        size = newSize;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int inUse() {
+        return size() - availablePermits();
+    }
+}
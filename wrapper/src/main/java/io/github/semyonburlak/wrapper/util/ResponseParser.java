@@ -1,20 +1,32 @@
 package io.github.semyonburlak.wrapper.util;
 
 import io.github.semyonburlak.wrapper.dto.DikidiResult;
+import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.exc.InputCoercionException;
+import tools.jackson.core.exc.StreamReadException;
+import tools.jackson.databind.DeserializationFeature;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.node.MissingNode;
+
+import java.util.function.Supplier;
 
 @Component
 @Slf4j
 public class ResponseParser {
 
     private final ObjectMapper objectMapper;
+    private final ObjectReader partialReader;
 
     public ResponseParser(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
+        this.partialReader = objectMapper.reader().without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
     }
 
     public <T> DikidiResult<T> parse(JsonNode root, Class<T> dataType) {
@@ -23,28 +35,78 @@ public class ResponseParser {
             return DikidiResult.fail("NULL_ROOT", "Root is null");
         }
 
-        JsonNode errorNode = root.path("error");
+        return resolve(
+                root.path("error"),
+                () -> root.path("message"),
+                () -> extractData(root, dataType),
+                () -> extractData(root.path("data"), dataType)
+        );
+    }
+
+    /**
+     * Single-pass variant of {@link #parse(JsonNode, Class)}: binds the payload straight from the
+     * token stream when {@code error} is the first property, otherwise falls back to the tree.
+     */
+    public <T> DikidiResult<T> parseBody(@Nullable byte[] body, Class<T> dataType) {
+
+        if (body == null || body.length == 0) {
+            return DikidiResult.fail("NULL_ROOT", "Root is null");
+        }
+
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                return DikidiResult.fail("NULL_ROOT", "Root is null");
+            }
+            if (first != JsonToken.START_OBJECT
+                    || parser.nextToken() != JsonToken.PROPERTY_NAME
+                    || !"error".equals(parser.currentName())) {
+                return parse(objectMapper.readTree(body), dataType);
+            }
 
+            parser.nextToken();
+            JsonNode errorNode = partialReader.readTree(parser);
+
+            return resolve(
+                    errorNode,
+                    () -> seekProperty(parser, "message") ? partialReader.readTree(parser) : MissingNode.getInstance(),
+                    () -> {
+                        parser.nextToken();
+                        return bindData(parser, dataType);
+                    },
+                    () -> seekProperty(parser, "data")
+                            ? bindData(parser, dataType)
+                            : extractData(MissingNode.getInstance(), dataType)
+            );
+        }
+    }
+
+    private <T> DikidiResult<T> resolve(
+            JsonNode errorNode,
+            Supplier<JsonNode> message,
+            Supplier<DikidiResult<T>> rootData,
+            Supplier<DikidiResult<T>> dataField
+    ) {
         if (errorNode.isMissingNode()) {
-            return extractData(root, dataType);
+            return rootData.get();
         }
 
         if (errorNode.isValueNode()) {
             if (errorNode.isBoolean()) {
                 if (!errorNode.booleanValue()) {
-                    return extractData(root, dataType);
+                    return rootData.get();
                 }
-                JsonNode messageNode = root.path("message");
+                JsonNode messageNode = message.get();
                 String messageValue = messageNode.isMissingNode() ? "No message" : messageNode.stringValue();
                 return DikidiResult.fail("1", messageValue);
             }
             String errorValue = errorNode.isString() ? errorNode.stringValue() : String.valueOf(errorNode.asInt());
-            JsonNode messageNode = root.path("message");
-            String messageValue = messageNode == null ? "No message" : messageNode.stringValue();
             if (!errorValue.equals("0")) {
+                JsonNode messageNode = message.get();
+                String messageValue = messageNode == null ? "No message" : messageNode.stringValue();
                 return DikidiResult.fail(errorValue, messageValue);
             }
-            return extractData(root, dataType);
+            return rootData.get();
         }
 
         if (errorNode.isObject()) {
@@ -59,13 +121,41 @@ public class ResponseParser {
                         : codeNode.asString();
                 return DikidiResult.fail(code, errorNode.path("message").asString("Unknown error"));
             }
-            return extractData(root.path("data"), dataType);
+            return dataField.get();
         }
 
         String errorCode = errorNode.asString();
         return DikidiResult.fail(errorCode, errorCode);
     }
 
+    private boolean seekProperty(JsonParser parser, String name) {
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            boolean found = name.equals(parser.currentName());
+            parser.nextToken();
+            if (found) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private <T> DikidiResult<T> bindData(JsonParser parser, Class<T> dataType) {
+        try {
+            T data = partialReader.forType(dataType).readValue(parser);
+            return DikidiResult.ok(data);
+        } catch (StreamReadException e) {
+            if (!(e instanceof InputCoercionException)) {
+                throw e;
+            }
+            return DikidiResult.fail("DATA_PARSE_ERROR", e.getMessage());
+        } catch (JacksonException e) {
+            return DikidiResult.fail("DATA_PARSE_ERROR", e.getMessage());
+        } catch (Exception e) {
+            return DikidiResult.fail("UNEXPECTED_ERROR", e.getMessage());
+        }
+    }
+
     private <T> DikidiResult<T> extractData(JsonNode node, Class<T> dataType) {
         try {
             T data = objectMapper.treeToValue(node, dataType);
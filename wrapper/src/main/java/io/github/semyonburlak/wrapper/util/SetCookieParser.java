@@ -0,0 +1,84 @@
+package io.github.semyonburlak.wrapper.util;
+
+import io.github.semyonburlak.dto.DikidiCookie;
+import jakarta.annotation.Nullable;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the lifetime of a {@code Set-Cookie} header. {@code Max-Age} wins over {@code Expires}; both the
+ * RFC 1123 date and the dashed {@code Wed, 21-Oct-2026 07:28:00 GMT} form that PHP emits are accepted.
+ */
+public final class SetCookieParser {
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?i)(;\\s*max-age\\s*=\\s*)-?\\d+");
+
+    private SetCookieParser() {
+    }
+
+    /**
+     * The header as {@link DikidiCookie#value()} with its absolute expiry, or a {@code null} expiry for a
+     * session cookie or an unreadable date.
+     */
+    public static DikidiCookie parse(String setCookie, Instant now) {
+        Instant expires = null;
+        Instant maxAge = null;
+        String[] parts = setCookie.split(";");
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i];
+            int eq = part.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String name = part.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+            String value = part.substring(eq + 1).trim();
+            if (name.equals("max-age")) {
+                maxAge = parseMaxAge(value, now);
+            } else if (name.equals("expires")) {
+                expires = parseExpires(value);
+            }
+        }
+        return new DikidiCookie(setCookie, maxAge != null ? maxAge : expires);
+    }
+
+    /**
+     * The cookie's header with {@code Max-Age} counted down to {@code now}, so a reused cookie does not
+     * outlive the one Dikidi issued. Headers without {@code Max-Age} are returned as they are.
+     */
+    public static String withRemainingMaxAge(DikidiCookie cookie, Instant now) {
+        if (cookie.expiresAt() == null) {
+            return cookie.value();
+        }
+        Matcher matcher = MAX_AGE.matcher(cookie.value());
+        if (!matcher.find()) {
+            return cookie.value();
+        }
+        long remaining = Math.max(0, cookie.expiresAt().getEpochSecond() - now.getEpochSecond());
+        return matcher.replaceFirst("$1" + remaining);
+    }
+
+    @Nullable
+    private static Instant parseMaxAge(String value, Instant now) {
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds <= 0 ? now : now.plusSeconds(seconds);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Instant parseExpires(String value) {
+        try {
+            return ZonedDateTime.parse(value.replace('-', ' '), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
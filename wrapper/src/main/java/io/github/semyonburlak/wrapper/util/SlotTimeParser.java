@@ -0,0 +1,95 @@
+package io.github.semyonburlak.wrapper.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parses Dikidi's fixed-width {@code yyyy-MM-dd HH:mm:ss} slot times and {@code yyyy-MM-dd} dates by reading
+ * digits in place. Anything that is not in exactly that shape, or has an out-of-range field, goes through
+ * {@link DateTimeFormatter} so callers still get its {@code DateTimeParseException}.
+ */
+public final class SlotTimeParser {
+
+    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int DATE_LENGTH = 10;
+    private static final int DATE_TIME_LENGTH = 19;
+    private static final long DAYS_0000_TO_1970 = 719528L;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private SlotTimeParser() {
+    }
+
+    public static LocalDate parseDate(CharSequence text) {
+        long epochDay = text.length() == DATE_LENGTH ? epochDay(text) : INVALID;
+        return epochDay != INVALID ? LocalDate.ofEpochDay(epochDay) : LocalDate.parse(text);
+    }
+
+    /**
+     * Slot start in minutes since the epoch, with the local time read as UTC. Seconds are dropped.
+     */
+    public static int parseEpochMinute(CharSequence text) {
+        if (text.length() == DATE_TIME_LENGTH && text.charAt(DATE_LENGTH) == ' '
+                && text.charAt(13) == ':' && text.charAt(16) == ':') {
+            long epochDay = epochDay(text);
+            int hour = twoDigits(text, 11);
+            int minute = twoDigits(text, 14);
+            int second = twoDigits(text, 17);
+            if (epochDay != INVALID && hour >= 0 && hour < 24 && minute >= 0 && minute < 60
+                    && second >= 0 && second < 60) {
+                return Math.toIntExact(epochDay * 1440 + hour * 60 + minute);
+            }
+        }
+        LocalDateTime dateTime = LocalDateTime.parse(text, SLOT_FORMAT);
+        return Math.toIntExact(Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+
+    /**
+     * Epoch day of a leading {@code yyyy-MM-dd}, or {@link #INVALID}; mirrors {@link LocalDate#toEpochDay()}.
+     */
+    private static long epochDay(CharSequence text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return INVALID;
+        }
+        int century = twoDigits(text, 0);
+        int yearOfCentury = twoDigits(text, 2);
+        int month = twoDigits(text, 5);
+        int day = twoDigits(text, 8);
+        if (century < 0 || yearOfCentury < 0 || month < 1 || month > 12) {
+            return INVALID;
+        }
+        long year = century * 100L + yearOfCentury;
+        if (day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        long total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= isLeap(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        return switch (month) {
+            case 2 -> isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean isLeap(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Two ASCII digits at {@code at}, or -1 if either is not a digit.
+     */
+    private static int twoDigits(CharSequence text, int at) {
+        int tens = text.charAt(at) - '0';
+        int ones = text.charAt(at + 1) - '0';
+        return tens >= 0 && tens <= 9 && ones >= 0 && ones <= 9 ? tens * 10 + ones : -1;
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.semyonburlak.wrapper.util;
+
+import io.github.semyonburlak.wrapper.exception.DikidiApiException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a paged slot listing. Besides the last slot returned it carries the query the page belongs to, so a
+ * cursor replayed against another company, service or range is rejected instead of silently skipping slots.
+ */
+public record TimesCursor(long companyId, long serviceId, LocalDate from, LocalDate to, LocalDateTime after) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String value = String.join(SEPARATOR, String.valueOf(companyId), String.valueOf(serviceId),
+                from.toString(), to.toString(), after.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static TimesCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII)
+                    .split("\\|", -1);
+            if (parts.length != 5) {
+                throw invalid("Malformed cursor");
+            }
+            return new TimesCursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    LocalDate.parse(parts[2]), LocalDate.parse(parts[3]), LocalDateTime.parse(parts[4]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw invalid("Malformed cursor");
+        }
+    }
+
+    /**
+     * Fails unless this cursor was issued for the given company and service.
+     */
+    public TimesCursor requireQuery(long companyId, long serviceId) {
+        if (this.companyId != companyId || this.serviceId != serviceId) {
+            throw invalid("Cursor belongs to another company or service");
+        }
+        return this;
+    }
+
+    public static DikidiApiException invalid(String message) {
+        return new DikidiApiException(HttpStatus.BAD_REQUEST, "INVALID_CURSOR", message);
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.semyonburlak.wrapper.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Runs one async call per item with at most {@code window} calls in flight, starting the next item as soon as
+ * one completes. The result fails with the first failure; once it is done, whether failed or cancelled, no
+ * further items are started and the calls still in flight are cancelled. One instance is shared by all runs so
+ * {@link #inFlight()} shows the calls it has outstanding across them.
+ */
+public final class WindowedFanOut {
+
+    private final int window;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public WindowedFanOut(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.window = window;
+    }
+
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Calls started by any run of this instance that have not completed yet.
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The call results in item order.
+     */
+    public <I, T> CompletableFuture<List<T>> map(
+            List<I> items, Function<? super I, ? extends CompletableFuture<? extends T>> call) {
+        Run<I, T> run = new Run<>(items, call, inFlight);
+        if (items.isEmpty()) {
+            run.result.complete(List.of());
+            return run.result;
+        }
+        run.result.whenComplete((_, failure) -> {
+            if (failure != null) {
+                run.cancelInFlight();
+            }
+        });
+        for (int i = Math.min(window, items.size()); i > 0; i--) {
+            run.launchNext();
+        }
+        return run.result;
+    }
+
+    /**
+     * Like {@link #map} for calls whose values are not needed; cancelling the returned future cancels the run.
+     */
+    public <I> CompletableFuture<Void> forEach(
+            List<I> items, Function<? super I, ? extends CompletableFuture<?>> call) {
+        CompletableFuture<List<Object>> all = map(items, call);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        all.whenComplete((_, failure) -> {
+            if (failure != null) {
+                done.completeExceptionally(failure);
+            } else {
+                done.complete(null);
+            }
+        });
+        done.whenComplete((_, failure) -> {
+            if (failure != null) {
+                all.cancel(false);
+            }
+        });
+        return done;
+    }
+
+    private static final class Run<I, T> {
+
+        private final List<I> items;
+        private final Function<? super I, ? extends CompletableFuture<? extends T>> call;
+        private final CompletableFuture<List<T>> result = new CompletableFuture<>();
+        private final AtomicReferenceArray<T> values;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final Set<CompletableFuture<? extends T>> inFlight = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger started;
+
+        private Run(
+                List<I> items,
+                Function<? super I, ? extends CompletableFuture<? extends T>> call,
+                AtomicInteger started) {
+            this.items = items;
+            this.call = call;
+            this.started = started;
+            this.values = new AtomicReferenceArray<>(items.size());
+            this.remaining = new AtomicInteger(items.size());
+        }
+
+        private void launchNext() {
+            if (result.isDone()) {
+                return;
+            }
+            int index = next.getAndIncrement();
+            if (index >= items.size()) {
+                return;
+            }
+            CompletableFuture<? extends T> future;
+            started.incrementAndGet();
+            try {
+                future = call.apply(items.get(index));
+            } catch (RuntimeException e) {
+                started.decrementAndGet();
+                result.completeExceptionally(e);
+                return;
+            }
+            inFlight.add(future);
+            future.whenComplete((value, failure) -> {
+                started.decrementAndGet();
+                inFlight.remove(future);
+                if (failure != null) {
+                    result.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure);
+                    return;
+                }
+                values.set(index, value);
+                if (remaining.decrementAndGet() == 0) {
+                    List<T> list = new ArrayList<>(values.length());
+                    for (int i = 0; i < values.length(); i++) {
+                        list.add(values.get(i));
+                    }
+                    result.complete(Collections.unmodifiableList(list));
+                } else {
+                    launchNext();
+                }
+            });
+            if (result.isDone() && inFlight.remove(future)) {
+                future.cancel(false);
+            }
+        }
+
+        private void cancelInFlight() {
+            for (CompletableFuture<? extends T> future : List.copyOf(inFlight)) {
+                future.cancel(false);
+            }
+        }
+    }
+}
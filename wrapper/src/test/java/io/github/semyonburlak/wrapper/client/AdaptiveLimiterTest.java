@@ -0,0 +1,110 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.github.semyonburlak.wrapper.config.AdaptiveLimitProps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+    private static final int WINDOW = 4;
+
+    private RateLimiter rateLimiter;
+    private SimpleMeterRegistry registry;
+    private AdaptiveLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = RateLimiter.of("dikidi", RateLimiterConfig.custom()
+                .limitForPeriod(8)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+        registry = new SimpleMeterRegistry();
+        limiter = new AdaptiveLimiter(rateLimiter, props(true), registry);
+    }
+
+    private static AdaptiveLimitProps props(boolean enabled) {
+        return new AdaptiveLimitProps(enabled, 2, 10, 1, 0.5, Duration.ofSeconds(1), WINDOW);
+    }
+
+    private void healthyWindow() {
+        for (int i = 0; i < WINDOW; i++) {
+            limiter.onSuccess(FAST);
+        }
+    }
+
+    @Test
+    void healthyWindowIncreasesLimitAdditively() {
+        healthyWindow();
+
+        assertThat(limiter.limit()).isEqualTo(9);
+        assertThat(rateLimiter.getRateLimiterConfig().getLimitForPeriod()).isEqualTo(9);
+        assertThat(registry.get("dikidi.upstream.limit").tag("kind", "rate").gauge().value()).isEqualTo(9);
+    }
+
+    @Test
+    void limitNeverExceedsCeiling() {
+        for (int i = 0; i < 5; i++) {
+            healthyWindow();
+        }
+
+        assertThat(limiter.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void overloadCutsMultiplicativelyOncePerWindow() {
+        limiter.onOverload();
+        limiter.onOverload();
+        limiter.onOverload();
+
+        assertThat(limiter.limit()).isEqualTo(4);
+        assertThat(registry.get("dikidi.upstream.limit.adjustments").tag("direction", "decrease").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void slowP95DecreasesLimitAndFloorHolds() {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < WINDOW; j++) {
+                limiter.onSuccess(SLOW);
+            }
+        }
+
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void inFlightCapFollowsLimit() {
+        limiter.onOverload();
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(RequestNotPermitted.class);
+        limiter.release();
+        limiter.acquire();
+    }
+
+    @Test
+    void disabledLimiterKeepsConfiguredRateAndDoesNotGate() {
+        AdaptiveLimiter disabled = new AdaptiveLimiter(rateLimiter, props(false), new SimpleMeterRegistry());
+        for (int i = 0; i < 20; i++) {
+            disabled.acquire();
+            disabled.onOverload();
+        }
+
+        assertThat(disabled.limit()).isEqualTo(8);
+        assertThat(rateLimiter.getRateLimiterConfig().getLimitForPeriod()).isEqualTo(8);
+    }
+}
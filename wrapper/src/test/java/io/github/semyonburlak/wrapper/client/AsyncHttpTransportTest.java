@@ -0,0 +1,117 @@
+package io.github.semyonburlak.wrapper.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncHttpTransportTest {
+
+    private HttpServer server;
+    private final CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+            .disableAutomaticRetries()
+            .build();
+    private AsyncHttpTransport transport;
+    private final AtomicReference<String> lastQuery = new AtomicReference<>();
+    private final AtomicReference<String> lastCookie = new AtomicReference<>();
+    private final AtomicReference<String> lastBody = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpClient.start();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ok", exchange -> {
+            lastQuery.set(exchange.getRequestURI().getRawQuery());
+            lastCookie.set(exchange.getRequestHeaders().getFirst("Cookie"));
+            lastBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            respond(exchange, 200, "{\"ok\":true}");
+        });
+        server.createContext("/busy", exchange -> {
+            exchange.getResponseHeaders().set("Retry-After", "2");
+            respond(exchange, 503, "{\"error\":{\"code\":503}}");
+        });
+        server.start();
+        String baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+        transport = new AsyncHttpTransport(httpClient, baseUrl, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        httpClient.close();
+    }
+
+    @Test
+    void getEncodesQueryAndSendsCookies() {
+        ResponseEntity<byte[]> response = transport
+                .send(HttpMethod.GET, "/ok", Map.of("services_id[]", "7"), "token=abc", null)
+                .join();
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(new String(response.getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"ok\":true}");
+        assertThat(lastQuery.get()).isEqualTo("services_id%5B%5D=7");
+        assertThat(lastCookie.get()).isEqualTo("token=abc");
+    }
+
+    @Test
+    void postSendsUrlEncodedForm() {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("number", "+7 900");
+        form.add("password", "p&ss");
+
+        transport.send(HttpMethod.POST, "/ok", null, null, form).join();
+
+        assertThat(lastBody.get()).isEqualTo("number=%2B7+900&password=p%26ss");
+    }
+
+    @Test
+    void errorStatusFailsWithResponseException() {
+        assertThatThrownBy(() -> transport.send(HttpMethod.GET, "/busy", null, null, null).join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOfSatisfying(RestClientResponseException.class, e -> {
+                    assertThat(e.getStatusCode().value()).isEqualTo(503);
+                    assertThat(e.getResponseHeaders().getFirst("Retry-After")).isEqualTo("2");
+                    assertThat(e.getResponseBodyAsString()).contains("503");
+                });
+    }
+
+    @Test
+    void connectionFailureFailsWithResourceAccessException() {
+        AsyncHttpTransport unreachable = new AsyncHttpTransport(
+                httpClient, "http://localhost:1", Duration.ofSeconds(1));
+
+        assertThatThrownBy(() -> unreachable.send(HttpMethod.GET, "/ok", null, null, null).join())
+                .cause()
+                .isInstanceOf(ResourceAccessException.class);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
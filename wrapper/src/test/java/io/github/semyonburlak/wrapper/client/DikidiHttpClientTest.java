@@ -0,0 +1,400 @@
+package io.github.semyonburlak.wrapper.client;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.semyonburlak.wrapper.config.AdaptiveLimitProps;
+import io.github.semyonburlak.wrapper.dto.DikidiResponse;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiDatesTrue;
+import io.github.semyonburlak.wrapper.support.WrapperTestConfig;
+import io.github.semyonburlak.wrapper.util.ResponseParser;
+import io.github.semyonburlak.wrapper.util.WindowedFanOut;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class DikidiHttpClientTest {
+
+    private static final String PATH = "/ajax/newrecord/get_dates_true";
+    private static final String DATES_BODY = "{\"error\":{\"code\":0},\"data\":{\"dates_true\":[\"2024-01-15\"]}}";
+
+    private MockRestServiceServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private BulkheadRegistry bulkheadRegistry;
+    private RetryRegistry retryRegistry;
+    private DikidiHttpClient client;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final CloseableHttpAsyncClient asyncHttpClient = HttpAsyncClients.custom()
+            .disableAutomaticRetries()
+            .build();
+    private HttpServer upstream;
+
+    @BeforeEach
+    void setUp() {
+        asyncHttpClient.start();
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://localhost");
+        server = MockRestServiceServer.bindTo(builder).build();
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        retryRegistry = RetryRegistry.of(RetryConfig.custom().maxAttempts(1).build());
+        bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        client = newClient(builder.build(), RateLimiterConfig.custom()
+                .limitForPeriod(10)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        timer.shutdownNow();
+        asyncHttpClient.close();
+        if (upstream != null) {
+            upstream.stop(0);
+        }
+    }
+
+    private DikidiHttpClient newClient(RestClient restClient, RateLimiterConfig rateLimiterConfig) {
+        return newClient(restClient, transport("http://localhost:1"), rateLimiterConfig);
+    }
+
+    private DikidiHttpClient newClient(
+            RestClient restClient, AsyncHttpTransport transport, RateLimiterConfig rateLimiterConfig) {
+        RateLimiter rateLimiter = RateLimiter.of("dikidi", rateLimiterConfig);
+        AdaptiveLimitProps disabled = new AdaptiveLimitProps(false, 1, 10, 1, 0.5, Duration.ofSeconds(1), 10);
+        AdaptiveLimiter adaptiveLimiter = new AdaptiveLimiter(rateLimiter, disabled, meterRegistry);
+        return new DikidiHttpClient(
+                restClient,
+                transport,
+                timer,
+                new ResponseParser(WrapperTestConfig.buildObjectMapper()),
+                new FairScheduler(rateLimiter, 4, 32, meterRegistry),
+                adaptiveLimiter,
+                retryRegistry,
+                new RetryBudget(0.1, 10, meterRegistry),
+                circuitBreakerRegistry,
+                new UpstreamPermits(rateLimiter, adaptiveLimiter, bulkheadRegistry.bulkhead("dikidi")),
+                new StaleResponseCache(100, Duration.ofMinutes(5)),
+                meterRegistry);
+    }
+
+    @Test
+    void successfulCallRecordsRequestLatencyAndPermitWait() {
+        server.expect(requestTo("http://localhost" + PATH))
+                .andRespond(withSuccess(DATES_BODY, MediaType.APPLICATION_JSON));
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, Map.of(), DikidiDatesTrue.class);
+
+        assertThat(response.result().success()).isTrue();
+        assertThat(meterRegistry.get("dikidi.upstream.requests")
+                .tags("method", "GET", "path", PATH, "code", "OK").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.latency")
+                .tags("method", "GET", "path", PATH, "status", "200").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.ratelimiter.wait")
+                .tags("path", PATH, "outcome", "permitted").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void multiValueQueryParamsAreRepeatedAndCookiesSent() {
+        server.expect(requestTo("http://localhost" + PATH + "?companyId=1&id=10&id=11"))
+                .andExpect(header(HttpHeaders.COOKIE, "token=abc"))
+                .andRespond(withSuccess(DATES_BODY, MediaType.APPLICATION_JSON));
+        LinkedMultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        queryParams.add("companyId", "1");
+        queryParams.add("id", "10");
+        queryParams.add("id", "11");
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, queryParams, "token=abc", DikidiDatesTrue.class,
+                CallContext.forCompany(1L, Priority.INTERACTIVE));
+
+        assertThat(response.result().success()).isTrue();
+        server.verify();
+    }
+
+    @Test
+    void upstreamErrorIsTaggedWithResultCodeAndHttpStatus() {
+        server.expect(requestTo("http://localhost" + PATH))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body("{\"error\":{\"code\":400,\"message\":\"Company not found\"}}"));
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, Map.of(), DikidiDatesTrue.class);
+
+        assertThat(response.result().error().code()).isEqualTo("400");
+        assertThat(meterRegistry.get("dikidi.upstream.requests").tags("code", "400").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.latency").tags("status", "400").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedPermitIsMeasuredWithoutNetworkTime() {
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://localhost");
+        server = MockRestServiceServer.bindTo(builder).build();
+        client = newClient(builder.build(), RateLimiterConfig.custom()
+                .limitForPeriod(1)
+                .limitRefreshPeriod(Duration.ofHours(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+        server.expect(requestTo("http://localhost" + PATH))
+                .andRespond(withSuccess(DATES_BODY, MediaType.APPLICATION_JSON));
+
+        client.get(PATH, Map.of(), DikidiDatesTrue.class);
+        DikidiResponse<DikidiDatesTrue> rejected = client.get(PATH, Map.of(), DikidiDatesTrue.class);
+
+        assertThat(rejected.result().error().code()).isEqualTo("RATE_LIMITED");
+        assertThat(meterRegistry.get("dikidi.upstream.ratelimiter.wait")
+                .tags("outcome", "rejected").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.requests")
+                .tags("code", "RATE_LIMITED").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.latency").timer().count()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    void openCircuitServesLastGoodResponseWithoutCallingUpstream() {
+        server.expect(requestTo("http://localhost" + PATH + "?company_id=1"))
+                .andRespond(withSuccess(DATES_BODY, MediaType.APPLICATION_JSON));
+        client.get(PATH, Map.of("company_id", "1"), DikidiDatesTrue.class);
+
+        circuitBreakerRegistry.circuitBreaker(PATH).transitionToOpenState();
+        DikidiResponse<DikidiDatesTrue> stale = client.get(PATH, Map.of("company_id", "1"), DikidiDatesTrue.class);
+
+        assertThat(stale.result().success()).isTrue();
+        assertThat(stale.result().data().datesTrue()).hasSize(1);
+        assertThat(meterRegistry.get("dikidi.upstream.fallback")
+                .tags("reason", "CIRCUIT_OPEN", "outcome", "stale").counter().count()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    void openCircuitWithoutCachedResponseFailsFast() {
+        circuitBreakerRegistry.circuitBreaker(PATH).transitionToOpenState();
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, Map.of("company_id", "2"), DikidiDatesTrue.class);
+
+        assertThat(response.result().error().code()).isEqualTo("CIRCUIT_OPEN");
+        assertThat(meterRegistry.find("dikidi.upstream.latency").timer()).isNull();
+        server.verify();
+    }
+
+    @Test
+    void fullBulkheadRejectsAndReturnsPermits() {
+        bulkheadRegistry.bulkhead("dikidi").acquirePermission();
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, Map.of(), DikidiDatesTrue.class);
+
+        assertThat(response.result().error().code()).isEqualTo("BULKHEAD_FULL");
+        assertThat(meterRegistry.get("dikidi.upstream.ratelimiter.wait")
+                .tags("outcome", "rejected").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.in-flight").gauge().value()).isZero();
+        server.verify();
+    }
+
+    @Test
+    void getRetriesTransientStatusWithBackoff() {
+        useRetryingClient();
+        server.expect(requestTo("http://localhost" + PATH)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        server.expect(requestTo("http://localhost" + PATH))
+                .andRespond(withSuccess(DATES_BODY, MediaType.APPLICATION_JSON));
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, Map.of(), DikidiDatesTrue.class);
+
+        assertThat(response.result().success()).isTrue();
+        assertThat(meterRegistry.get("dikidi.upstream.retries").tags("path", PATH).counter().count()).isEqualTo(1);
+        server.verify();
+    }
+
+    @Test
+    void persistentFailureIsChargedOnlyForRetriesThatHappen() {
+        useRetryingClient();
+        server.expect(ExpectedCount.times(3), requestTo("http://localhost" + PATH))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, Map.of(), DikidiDatesTrue.class);
+
+        assertThat(response.result().success()).isFalse();
+        assertThat(meterRegistry.get("dikidi.upstream.retry.budget.decisions").tag("outcome", "granted")
+                .counter().count()).isEqualTo(2);
+        server.verify();
+    }
+
+    @Test
+    void deterministicClientErrorIsNotRetried() {
+        useRetryingClient();
+        server.expect(once(), requestTo("http://localhost" + PATH))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body("{\"error\":{\"code\":400,\"message\":\"Company not found\"}}"));
+
+        DikidiResponse<DikidiDatesTrue> response = client.get(PATH, Map.of(), DikidiDatesTrue.class);
+
+        assertThat(response.result().error().code()).isEqualTo("400");
+        assertThat(meterRegistry.find("dikidi.upstream.retries").counter()).isNull();
+        server.verify();
+    }
+
+    @Test
+    void postIsNeverRetried() {
+        useRetryingClient();
+        server.expect(once(), requestTo("http://localhost/ajax/user/auth"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        DikidiResponse<DikidiDatesTrue> response =
+                client.post("/ajax/user/auth", new LinkedMultiValueMap<>(), DikidiDatesTrue.class);
+
+        assertThat(response.result().success()).isFalse();
+        server.verify();
+    }
+
+    private void useRetryingClient() {
+        RetryPolicy policy = new RetryPolicy(
+                Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofSeconds(1),
+                new RetryBudget(0.1, 10, meterRegistry));
+        retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(3)
+                .retryOnException(policy::shouldRetry)
+                .intervalBiFunction(policy::backoffMillis)
+                .build());
+        RestClient.Builder builder = RestClient.builder().baseUrl("http://localhost");
+        server = MockRestServiceServer.bindTo(builder).build();
+        client = newClient(builder.build(), RateLimiterConfig.custom()
+                .limitForPeriod(10)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+    }
+
+    @Test
+    void getAsyncParsesResponseAndRecordsMetrics() throws IOException {
+        startUpstream(new AtomicInteger(0));
+        client = newClient(RestClient.create(), transport(upstreamUrl()), RateLimiterConfig.custom()
+                .limitForPeriod(10)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+
+        DikidiResponse<DikidiDatesTrue> response = client
+                .getAsync(PATH, Map.of("company_id", "1"), DikidiDatesTrue.class, CallContext.of(null))
+                .join();
+
+        assertThat(response.result().data().datesTrue()).containsExactly("2024-01-15");
+        assertThat(meterRegistry.get("dikidi.upstream.requests")
+                .tags("method", "GET", "path", PATH, "code", "OK").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.latency").tags("status", "200").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void getAsyncRetriesTransientStatusOnTheTimer() throws IOException {
+        AtomicInteger failuresLeft = new AtomicInteger(1);
+        startUpstream(failuresLeft);
+        useRetryingClient();
+        client = newClient(RestClient.create(), transport(upstreamUrl()), RateLimiterConfig.custom()
+                .limitForPeriod(10)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+
+        DikidiResponse<DikidiDatesTrue> response = client
+                .getAsync(PATH, Map.of(), DikidiDatesTrue.class, CallContext.of(null))
+                .join();
+
+        assertThat(response.result().success()).isTrue();
+        assertThat(failuresLeft).hasValue(0);
+        assertThat(meterRegistry.get("dikidi.upstream.retries").tags("path", PATH).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dikidi.upstream.latency").tags("status", "503").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void getAsyncOnOpenCircuitFailsFastWithoutNetwork() {
+        circuitBreakerRegistry.circuitBreaker(PATH).transitionToOpenState();
+
+        DikidiResponse<DikidiDatesTrue> response = client
+                .getAsync(PATH, Map.of(), DikidiDatesTrue.class, CallContext.of(null))
+                .join();
+
+        assertThat(response.result().error().code()).isEqualTo("CIRCUIT_OPEN");
+        assertThat(meterRegistry.find("dikidi.upstream.latency").timer()).isNull();
+    }
+
+    @Test
+    void getAsyncFanOutWiderThanBulkheadWaitsForSlotsInsteadOfFailing() throws IOException {
+        startUpstream(new AtomicInteger(0));
+        client = newClient(RestClient.create(), transport(upstreamUrl()), RateLimiterConfig.custom()
+                .limitForPeriod(100)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofSeconds(5))
+                .build());
+        CallContext context = CallContext.forCompany(1L, Priority.BULK);
+        List<Integer> days = IntStream.range(0, 12).boxed().toList();
+
+        List<DikidiResponse<DikidiDatesTrue>> responses = new WindowedFanOut(4).map(days, day -> client.getAsync(
+                PATH, Map.of("company_id", "1", "day", String.valueOf(day)), DikidiDatesTrue.class, context))
+                .join();
+
+        assertThat(responses).hasSize(12).allSatisfy(response -> assertThat(response.result().success()).isTrue());
+        assertThat(meterRegistry.find("dikidi.upstream.ratelimiter.wait").tag("outcome", "rejected").timer())
+                .isNull();
+        assertThat(bulkheadRegistry.bulkhead("dikidi").getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    private void startUpstream(AtomicInteger failuresBeforeSuccess) throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext(PATH, exchange -> {
+            byte[] body = DATES_BODY.getBytes(StandardCharsets.UTF_8);
+            int status = failuresBeforeSuccess.getAndUpdate(n -> Math.max(0, n - 1)) > 0 ? 503 : 200;
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        upstream.start();
+    }
+
+    private String upstreamUrl() {
+        return "http://" + upstream.getAddress().getHostString() + ":" + upstream.getAddress().getPort();
+    }
+
+    private AsyncHttpTransport transport(String baseUrl) {
+        return new AsyncHttpTransport(asyncHttpClient, baseUrl, Duration.ofSeconds(5));
+    }
+}
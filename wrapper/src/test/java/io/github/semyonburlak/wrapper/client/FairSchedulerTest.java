@@ -0,0 +1,216 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class FairSchedulerTest {
+
+    private static RateLimiter rateLimiter(int limitForPeriod, Duration refresh, Duration timeout) {
+        return RateLimiter.of("dikidi", RateLimiterConfig.custom()
+                .limitForPeriod(limitForPeriod)
+                .limitRefreshPeriod(refresh)
+                .timeoutDuration(timeout)
+                .build());
+    }
+
+    @Test
+    void originAtCapWaitsUntilRelease() throws Exception {
+        FairScheduler scheduler = new FairScheduler(
+                rateLimiter(100, Duration.ofSeconds(1), Duration.ofSeconds(5)), 2, 32, new SimpleMeterRegistry());
+        CallContext fanOut = new CallContext("1", "fan-out", Priority.INTERACTIVE);
+        scheduler.acquire(fanOut);
+        scheduler.acquire(fanOut);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CountDownLatch admitted = new CountDownLatch(1);
+            executor.submit(() -> {
+                scheduler.acquire(fanOut);
+                admitted.countDown();
+            });
+
+            awaitQueued(scheduler, 1);
+            assertThat(admitted.getCount()).isEqualTo(1);
+
+            scheduler.release(fanOut);
+            assertThat(admitted.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void otherCompaniesAreNotBlockedByCappedOrigin() {
+        FairScheduler scheduler = new FairScheduler(
+                rateLimiter(100, Duration.ofSeconds(1), Duration.ZERO), 1, 32, new SimpleMeterRegistry());
+        CallContext fanOut = new CallContext("1", "fan-out", Priority.INTERACTIVE);
+        scheduler.acquire(fanOut);
+
+        assertThatThrownBy(() -> scheduler.acquire(fanOut)).isInstanceOf(RequestNotPermitted.class);
+        scheduler.acquire(new CallContext("2", "interactive", Priority.INTERACTIVE));
+        assertThat(scheduler.queued()).isZero();
+    }
+
+    @Test
+    void permitsAlternateBetweenCompaniesUnderContention() throws Exception {
+        RateLimiter limiter = rateLimiter(1, Duration.ofMillis(500), Duration.ofSeconds(5));
+        FairScheduler scheduler = new FairScheduler(limiter, 100, 32, new SimpleMeterRegistry());
+        CallContext blocker = new CallContext("0", "blocker", Priority.INTERACTIVE);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            scheduler.acquire(blocker);
+            for (int i = 0; i < 4; i++) {
+                executor.submit(() -> {
+                    scheduler.acquire(new CallContext("big", "fan-out", Priority.INTERACTIVE));
+                    order.add("big");
+                });
+            }
+            awaitQueued(scheduler, 3);
+            executor.submit(() -> {
+                scheduler.acquire(new CallContext("small", "interactive", Priority.INTERACTIVE));
+                order.add("small");
+            });
+            awaitQueued(scheduler, 4);
+        }
+
+        assertThat(order).containsExactly("big", "big", "small", "big", "big");
+    }
+
+    @Test
+    void rejectedWaiterLeavesNoQueuedState() {
+        FairScheduler scheduler = new FairScheduler(
+                rateLimiter(1, Duration.ofHours(1), Duration.ZERO), 4, 32, new SimpleMeterRegistry());
+        CallContext context = new CallContext("1", "a", Priority.INTERACTIVE);
+        scheduler.acquire(context);
+
+        assertThatThrownBy(() -> scheduler.acquire(context)).isInstanceOf(RequestNotPermitted.class);
+        scheduler.release(context);
+        assertThat(scheduler.queued()).isZero();
+        assertThat(scheduler.activeCompanies()).isZero();
+    }
+
+    @Test
+    void bookingJumpsAheadOfQueuedBulkWork() throws Exception {
+        RateLimiter limiter = rateLimiter(1, Duration.ofMillis(500), Duration.ofSeconds(5));
+        FairScheduler scheduler = new FairScheduler(limiter, 100, 32, new SimpleMeterRegistry());
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            scheduler.acquire(new CallContext("0", "blocker", Priority.INTERACTIVE));
+            for (int i = 0; i < 3; i++) {
+                executor.submit(() -> {
+                    scheduler.acquire(new CallContext("1", "fan-out", Priority.BULK));
+                    order.add("bulk");
+                });
+            }
+            awaitQueued(scheduler, 2);
+            executor.submit(() -> {
+                scheduler.acquire(new CallContext("1", "click", Priority.BOOKING));
+                order.add("booking");
+            });
+            awaitQueued(scheduler, 3);
+        }
+
+        assertThat(order).containsExactly("bulk", "booking", "bulk", "bulk");
+    }
+
+    @Test
+    void deepQueueShedsBulkBeforeInteractiveAndNeverBooking() throws Exception {
+        RateLimiter limiter = rateLimiter(1, Duration.ofHours(1), Duration.ofSeconds(5));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FairScheduler scheduler = new FairScheduler(limiter, 100, 1, registry);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            scheduler.acquire(new CallContext("0", "blocker", Priority.INTERACTIVE));
+            executor.submit(() -> scheduler.acquire(new CallContext("1", "a", Priority.INTERACTIVE)));
+            executor.submit(() -> scheduler.acquire(new CallContext("1", "b", Priority.INTERACTIVE)));
+            awaitQueued(scheduler, 1);
+
+            assertThatThrownBy(() -> scheduler.acquire(new CallContext("2", "bulk", Priority.BULK)))
+                    .isInstanceOf(RequestNotPermitted.class);
+            assertThat(registry.get("dikidi.scheduler.shed").tag("priority", "BULK").counter().count())
+                    .isEqualTo(1);
+
+            executor.submit(() -> scheduler.acquire(new CallContext("3", "click", Priority.BOOKING)));
+            awaitQueued(scheduler, 2);
+            assertThat(scheduler.queued(Priority.BOOKING)).isEqualTo(1);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncWaiterIsAdmittedInTurnWithoutParkingAThread() throws Exception {
+        RateLimiter limiter = rateLimiter(1, Duration.ofMillis(200), Duration.ofSeconds(5));
+        FairScheduler scheduler = new FairScheduler(limiter, 100, 32, new SimpleMeterRegistry());
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.acquire(new CallContext("0", "blocker", Priority.INTERACTIVE));
+
+            CompletableFuture<Void> first = scheduler.acquireAsync(
+                    new CallContext("1", "a", Priority.INTERACTIVE), timer);
+            CompletableFuture<Void> second = scheduler.acquireAsync(
+                    new CallContext("2", "b", Priority.INTERACTIVE), timer);
+
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            assertThat(scheduler.queued()).isZero();
+            assertThat(scheduler.activeCompanies()).isEqualTo(3);
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncWaiterTimesOutAndLeavesNoQueuedState() {
+        FairScheduler scheduler = new FairScheduler(
+                rateLimiter(1, Duration.ofHours(1), Duration.ofMillis(50)), 1, 32, new SimpleMeterRegistry());
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            CallContext context = new CallContext("1", "a", Priority.INTERACTIVE);
+            scheduler.acquire(context);
+
+            CompletableFuture<Void> rejected = scheduler.acquireAsync(context, timer);
+
+            assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(RequestNotPermitted.class);
+            scheduler.release(context);
+            assertThat(scheduler.queued()).isZero();
+            assertThat(scheduler.activeCompanies()).isZero();
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void spareCapacityRequiresIdleQueueAndPermitsAboveReserve() {
+        FairScheduler scheduler = new FairScheduler(
+                rateLimiter(3, Duration.ofHours(1), Duration.ZERO), 4, 32, new SimpleMeterRegistry());
+
+        assertThat(scheduler.hasSpareCapacity(2)).isTrue();
+        scheduler.acquire(new CallContext("1", "a", Priority.INTERACTIVE));
+        assertThat(scheduler.hasSpareCapacity(2)).isFalse();
+        assertThat(scheduler.hasSpareCapacity(1)).isTrue();
+    }
+
+    private static void awaitQueued(FairScheduler scheduler, int expected) {
+        await().pollDelay(Duration.ZERO)
+                .pollInterval(Duration.ofMillis(5))
+                .atMost(Duration.ofSeconds(5))
+                .until(() -> scheduler.queued() == expected);
+    }
+}
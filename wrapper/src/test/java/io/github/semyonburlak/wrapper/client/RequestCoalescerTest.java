@@ -0,0 +1,148 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.semyonburlak.wrapper.dto.DikidiResponse;
+import io.github.semyonburlak.wrapper.dto.DikidiResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
+    @Test
+    void keyIgnoresQueryParamOrder() {
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put("company_id", "1");
+        first.put("date", "2024-01-15");
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put("date", "2024-01-15");
+        second.put("company_id", "1");
+
+        assertThat(RequestCoalescer.key("/get_datetimes", first, String.class))
+                .isEqualTo(RequestCoalescer.key("/get_datetimes", second, String.class));
+    }
+
+    @Test
+    void keyDiffersByPathParamsAndType() {
+        String base = RequestCoalescer.key("/a", Map.of("x", "1"), String.class);
+        assertThat(RequestCoalescer.key("/b", Map.of("x", "1"), String.class)).isNotEqualTo(base);
+        assertThat(RequestCoalescer.key("/a", Map.of("x", "2"), String.class)).isNotEqualTo(base);
+        assertThat(RequestCoalescer.key("/a", Map.of("x", "1"), Integer.class)).isNotEqualTo(base);
+    }
+
+    @Test
+    void keyMatchesSingleValueListsAndRepeatsMultipleValues() {
+        assertThat(RequestCoalescer.key("/a", Map.of("x", List.of("1")), String.class))
+                .isEqualTo(RequestCoalescer.key("/a", Map.of("x", "1"), String.class));
+        assertThat(RequestCoalescer.key("/a", Map.of("x", List.of("1", "2")), String.class))
+                .isNotEqualTo(RequestCoalescer.key("/a", Map.of("x", "1"), String.class));
+    }
+
+    @Test
+    void concurrentCallersShareOneInFlightCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<DikidiResponse<String>> leader = CompletableFuture.supplyAsync(
+                    () -> coalescer.coalesce("k", Priority.INTERACTIVE, () -> {
+                        calls.incrementAndGet();
+                        leaderStarted.countDown();
+                        await(release);
+                        return DikidiResponse.of(DikidiResult.ok("shared"), null);
+                    }), executor);
+            assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            CountDownLatch followersStarted = new CountDownLatch(5);
+            List<CompletableFuture<DikidiResponse<String>>> followers = IntStream.range(0, 5)
+                    .mapToObj(_ -> CompletableFuture.supplyAsync(() -> {
+                        followersStarted.countDown();
+                        return coalescer.<String>coalesce("k", Priority.INTERACTIVE, () -> {
+                            calls.incrementAndGet();
+                            return DikidiResponse.of(DikidiResult.ok("own"), null);
+                        });
+                    }, executor))
+                    .toList();
+            assertThat(followersStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(50);
+            release.countDown();
+
+            assertThat(leader.join().result().data()).isEqualTo("shared");
+            followers.forEach(f -> assertThat(f.join().result().data()).isEqualTo("shared"));
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    void sequentialCallsAreNotShared() {
+        AtomicInteger calls = new AtomicInteger();
+        coalescer.coalesce("k", Priority.INTERACTIVE,
+                () -> DikidiResponse.of(DikidiResult.ok(calls.incrementAndGet()), null));
+        coalescer.coalesce("k", Priority.INTERACTIVE,
+                () -> DikidiResponse.of(DikidiResult.ok(calls.incrementAndGet()), null));
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void moreUrgentCallerDoesNotJoinLowerPriorityCall() {
+        CompletableFuture<DikidiResponse<String>> bulkCall = new CompletableFuture<>();
+        CompletableFuture<DikidiResponse<String>> bulk = coalescer.coalesceAsync("k", Priority.BULK, () -> bulkCall);
+
+        CompletableFuture<DikidiResponse<String>> interactive = coalescer.coalesceAsync("k", Priority.INTERACTIVE,
+                () -> CompletableFuture.completedFuture(DikidiResponse.of(DikidiResult.ok("own"), null)));
+        bulkCall.completeExceptionally(new IllegalStateException("shed"));
+
+        assertThat(interactive.join().result().data()).isEqualTo("own");
+        assertThat(bulk).isCompletedExceptionally();
+    }
+
+    @Test
+    void lessUrgentCallerJoinsHigherPriorityCall() {
+        CompletableFuture<DikidiResponse<String>> interactiveCall = new CompletableFuture<>();
+        CompletableFuture<DikidiResponse<String>> interactive = coalescer.coalesceAsync(
+                "k", Priority.INTERACTIVE, () -> interactiveCall);
+        AtomicInteger bulkCalls = new AtomicInteger();
+
+        CompletableFuture<DikidiResponse<String>> bulk = coalescer.coalesceAsync("k", Priority.BULK, () -> {
+            bulkCalls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        interactiveCall.complete(DikidiResponse.of(DikidiResult.ok("shared"), null));
+
+        assertThat(bulkCalls).hasValue(0);
+        assertThat(bulk.join().result().data()).isEqualTo("shared");
+        assertThat(interactive.join().result().data()).isEqualTo("shared");
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    void failureIsPropagatedAndNotRetained() {
+        assertThatThrownBy(() -> coalescer.coalesce("k", Priority.INTERACTIVE, () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
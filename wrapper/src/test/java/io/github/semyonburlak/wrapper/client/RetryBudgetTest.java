@@ -0,0 +1,78 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBudgetTest {
+
+    @Test
+    void reserveIsSpentThenRefilledByRequests() {
+        RetryBudget budget = new RetryBudget(0.1, 2, new SimpleMeterRegistry());
+
+        assertThat(budget.canAfford()).isTrue();
+        budget.spend();
+        assertThat(budget.canAfford()).isTrue();
+        budget.spend();
+        assertThat(budget.canAfford()).isFalse();
+
+        for (int i = 0; i < 9; i++) {
+            budget.onRequest();
+        }
+        assertThat(budget.canAfford()).isFalse();
+        budget.onRequest();
+        assertThat(budget.canAfford()).isTrue();
+    }
+
+    @Test
+    void canAffordDoesNotSpend() {
+        RetryBudget budget = new RetryBudget(0.1, 1, new SimpleMeterRegistry());
+
+        assertThat(budget.canAfford()).isTrue();
+        assertThat(budget.canAfford()).isTrue();
+        assertThat(budget.balance()).isEqualTo(1.0);
+    }
+
+    @Test
+    void spendNeverDropsBelowZero() {
+        RetryBudget budget = new RetryBudget(0.5, 1, new SimpleMeterRegistry());
+
+        budget.spend();
+        budget.spend();
+        assertThat(budget.balance()).isZero();
+
+        budget.onRequest();
+        budget.onRequest();
+        assertThat(budget.canAfford()).isTrue();
+    }
+
+    @Test
+    void balanceIsCappedAtReserve() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetryBudget budget = new RetryBudget(0.5, 3, registry);
+
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+
+        assertThat(budget.balance()).isEqualTo(3.0);
+        assertThat(registry.get("dikidi.upstream.retry.budget").gauge().value()).isEqualTo(3.0);
+    }
+
+    @Test
+    void decisionsAreCounted() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetryBudget budget = new RetryBudget(0.1, 1, registry);
+
+        if (budget.canAfford()) {
+            budget.spend();
+        }
+        budget.canAfford();
+
+        assertThat(registry.get("dikidi.upstream.retry.budget.decisions").tag("outcome", "granted")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get("dikidi.upstream.retry.budget.decisions").tag("outcome", "exhausted")
+                .counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.semyonburlak.wrapper.client;
+
+import io.github.resilience4j.core.functions.Either;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(
+            Duration.ofMillis(100), Duration.ofSeconds(2), Duration.ofSeconds(10),
+            new RetryBudget(0.1, 100, new SimpleMeterRegistry()));
+
+    @Test
+    void onlyTimeoutsAndOverloadStatusesAreTransient() {
+        assertThat(policy.shouldRetry(new ResourceAccessException("read timed out", new SocketTimeoutException())))
+                .isTrue();
+        assertThat(policy.shouldRetry(serverError(HttpStatus.BAD_GATEWAY, null))).isTrue();
+        assertThat(policy.shouldRetry(serverError(HttpStatus.SERVICE_UNAVAILABLE, null))).isTrue();
+        assertThat(policy.shouldRetry(clientError(HttpStatus.TOO_MANY_REQUESTS, null))).isTrue();
+
+        assertThat(policy.shouldRetry(serverError(HttpStatus.INTERNAL_SERVER_ERROR, null))).isFalse();
+        assertThat(policy.shouldRetry(clientError(HttpStatus.BAD_REQUEST, null))).isFalse();
+        assertThat(policy.shouldRetry(new IllegalStateException("bug"))).isFalse();
+    }
+
+    @Test
+    void backoffIsFullJitterUnderAnExponentialCeiling() {
+        Either<Throwable, Object> failure = Either.left(serverError(HttpStatus.BAD_GATEWAY, null));
+
+        for (int i = 0; i < 200; i++) {
+            assertThat(policy.backoffMillis(1, failure)).isBetween(0L, 100L);
+            assertThat(policy.backoffMillis(3, failure)).isBetween(0L, 400L);
+            assertThat(policy.backoffMillis(30, failure)).isBetween(0L, 2000L);
+        }
+    }
+
+    @Test
+    void retryAfterSecondsOverridesBackoff() {
+        Either<Throwable, Object> failure = Either.left(clientError(HttpStatus.TOO_MANY_REQUESTS, "3"));
+
+        assertThat(policy.backoffMillis(1, failure)).isEqualTo(3000);
+    }
+
+    @Test
+    void retryAfterHttpDateIsConvertedToDelay() {
+        String at = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(5));
+
+        Duration wait = RetryPolicy.retryAfter(serverError(HttpStatus.SERVICE_UNAVAILABLE, at));
+
+        assertThat(wait).isBetween(Duration.ofSeconds(3), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void retryAfterBeyondLimitIsNotRetried() {
+        assertThat(policy.shouldRetry(serverError(HttpStatus.SERVICE_UNAVAILABLE, "120"))).isFalse();
+    }
+
+    @Test
+    void exhaustedBudgetStopsRetries() {
+        RetryPolicy stingy = new RetryPolicy(
+                Duration.ofMillis(100), Duration.ofSeconds(2), Duration.ofSeconds(10),
+                new RetryBudget(0.0, 1, new SimpleMeterRegistry()));
+        HttpServerErrorException failure = serverError(HttpStatus.BAD_GATEWAY, null);
+
+        assertThat(stingy.shouldRetry(failure)).isTrue();
+        stingy.backoffMillis(1, Either.left(failure));
+        assertThat(stingy.shouldRetry(failure)).isFalse();
+    }
+
+    @Test
+    void onlyScheduledRetriesSpendTheBudget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RetryBudget budget = new RetryBudget(0.0, 2, registry);
+        RetryPolicy counted = new RetryPolicy(
+                Duration.ofMillis(100), Duration.ofSeconds(2), Duration.ofSeconds(10), budget);
+        HttpServerErrorException failure = serverError(HttpStatus.BAD_GATEWAY, null);
+
+        assertThat(counted.shouldRetry(failure)).isTrue();
+        assertThat(counted.shouldRetry(failure)).isTrue();
+        assertThat(budget.balance()).isEqualTo(2.0);
+
+        counted.backoffMillis(1, Either.left(failure));
+        assertThat(budget.balance()).isEqualTo(1.0);
+        assertThat(registry.get("dikidi.upstream.retry.budget.decisions").tag("outcome", "granted")
+                .counter().count()).isEqualTo(1);
+    }
+
+    private static HttpServerErrorException serverError(HttpStatus status, String retryAfter) {
+        return HttpServerErrorException.create(status, status.getReasonPhrase(), headers(retryAfter),
+                new byte[0], StandardCharsets.UTF_8);
+    }
+
+    private static HttpClientErrorException clientError(HttpStatus status, String retryAfter) {
+        return HttpClientErrorException.create(status, status.getReasonPhrase(), headers(retryAfter),
+                new byte[0], StandardCharsets.UTF_8);
+    }
+
+    private static HttpHeaders headers(String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return headers;
+    }
+}
@@ -1,6 +1,8 @@
 package io.github.semyonburlak.wrapper.controller;
 
 import io.github.semyonburlak.dto.AppointmentPageDto;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiRecordsData;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiRecordsInfo;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiTimeReservation;
 import io.github.semyonburlak.wrapper.exception.DikidiApiException;
 import io.github.semyonburlak.wrapper.service.AppointmentService;
@@ -100,4 +102,28 @@ class AppointmentControllerTest {
                 .andExpect(status().isBadGateway())
                 .andExpect(jsonPath("$.code").value("NULL_ROOT"));
     }
+
+    @Test
+    void getRecordsInfoBatchPassesAllRecordIds() throws Exception {
+        DikidiRecordsData data = new DikidiRecordsData();
+        data.addEntry("10", new DikidiRecordsInfo(null));
+        data.addEntry("11", new DikidiRecordsInfo(null));
+        when(appointmentService.getRecordsData(1L, List.of(10L, 11L), "abc")).thenReturn(data);
+
+        mockMvc.perform(get("/appointments/records_info/batch")
+                        .param("companyId", "1")
+                        .param("recordIds", "10", "11")
+                        .cookie(new Cookie("token", "abc")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries['10']").exists())
+                .andExpect(jsonPath("$.entries['11']").exists());
+    }
+
+    @Test
+    void getRecordsInfoBatchWithoutTokenReturns401() throws Exception {
+        mockMvc.perform(get("/appointments/records_info/batch")
+                        .param("companyId", "1")
+                        .param("recordIds", "10"))
+                .andExpect(status().isUnauthorized());
+    }
 }
@@ -1,30 +1,66 @@
 package io.github.semyonburlak.wrapper.controller;
 
 import io.github.semyonburlak.dto.CategoryDto;
+import io.github.semyonburlak.dto.MasterDto;
 import io.github.semyonburlak.dto.ServiceDto;
+import io.github.semyonburlak.wrapper.config.CompressionProps;
+import io.github.semyonburlak.wrapper.dto.SlotTable;
+import io.github.semyonburlak.wrapper.dto.TimesPage;
 import io.github.semyonburlak.wrapper.exception.DikidiApiException;
 import io.github.semyonburlak.wrapper.service.BookingCatalogService;
 import io.github.semyonburlak.wrapper.support.WrapperTestConfig;
+import io.github.semyonburlak.wrapper.util.TimesCursor;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.json.JsonCompareMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookingCatalogController.class)
-@Import(WrapperTestConfig.class)
+@Import({WrapperTestConfig.class, CatalogResponseWriter.class, BookingCatalogControllerTest.SseExecutorConfig.class})
+@EnableConfigurationProperties(CompressionProps.class)
 class BookingCatalogControllerTest {
 
     @Autowired
@@ -56,15 +92,83 @@ class BookingCatalogControllerTest {
                 .andExpect(jsonPath("$.message").value("Not found"));
     }
 
+    @Test
+    void getCategoriesLargeBodyIsGzippedWhenAccepted() throws Exception {
+        List<ServiceDto> services = new ArrayList<>();
+        for (long id = 0; id < 100; id++) {
+            services.add(new ServiceDto(id, "Service " + id));
+        }
+        when(bookingCatalogService.getCategories(1L)).thenReturn(List.of(new CategoryDto(1L, "Hair", services)));
+
+        byte[] gzipped = mockMvc.perform(get("/catalog/companies/1/categories")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("\"name\":\"Service 99\"");
+        }
+    }
+
+    @Test
+    void getCategoriesMatchingIfNoneMatchReturns304() throws Exception {
+        when(bookingCatalogService.getCategories(1L))
+                .thenReturn(List.of(new CategoryDto(1L, "Hair", List.of(new ServiceDto(101L, "Cut")))));
+
+        String etag = mockMvc.perform(get("/catalog/companies/1/categories"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/catalog/companies/1/categories").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getAllTimesMatchingIfNoneMatchReturns304() throws Exception {
+        SlotTable times = slotTable(LocalDateTime.of(2024, 1, 15, 10, 0), new MasterDto(1L, "Alice"));
+        when(bookingCatalogService.getTimes(anyLong(), anyLong(), any(), any())).thenReturn(times);
+
+        mockMvc.perform(get("/catalog/companies/1/services/2/times")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + times.contentHash() + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/catalog/companies/1/services/2/times")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + times.contentHash() + "\""));
+    }
+
     @Test
     void getAllTimesSuccessReturns200() throws Exception {
         when(bookingCatalogService.getTimes(anyLong(), anyLong(), any(), any()))
-                .thenReturn(Map.of());
+                .thenReturn(SlotTable.empty());
 
         mockMvc.perform(get("/catalog/companies/1/services/2/times"))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void getAllTimesWritesSlotTableAsDateTimeKeyedMap() throws Exception {
+        SlotTable.Builder builder = SlotTable.builder();
+        int alice = builder.master(new MasterDto(1L, "Alice"));
+        int bob = builder.master(new MasterDto(2L, "Bob"));
+        builder.add(LocalDateTime.of(2024, 1, 15, 10, 0), alice)
+                .add(LocalDateTime.of(2024, 1, 15, 10, 0), bob)
+                .add(LocalDateTime.of(2024, 1, 16, 9, 30), bob);
+        when(bookingCatalogService.getTimes(anyLong(), anyLong(), any(), any())).thenReturn(builder.build());
+
+        mockMvc.perform(get("/catalog/companies/1/services/2/times"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        {"2024-01-15T10:00":[{"id":1,"username":"Alice"},{"id":2,"username":"Bob"}],
+                         "2024-01-16T09:30":[{"id":2,"username":"Bob"}]}
+                        """, JsonCompareMode.STRICT));
+    }
+
     @Test
     void getAllTimesServiceErrorReturns502() throws Exception {
         when(bookingCatalogService.getTimes(anyLong(), anyLong(), any(), any())).thenThrow(
@@ -74,4 +178,137 @@ class BookingCatalogControllerTest {
                 .andExpect(status().isBadGateway())
                 .andExpect(jsonPath("$.code").value("NETWORK"));
     }
+
+    @Test
+    void streamTimesSendsOneEventPerDate() throws Exception {
+        LocalDate date = LocalDate.of(2024, 1, 15);
+        Map<LocalDateTime, List<MasterDto>> slots = Map.of(
+                date.atTime(10, 0), List.of(new MasterDto(1L, "Alice")));
+        when(bookingCatalogService.streamTimes(anyLong(), anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+            BiConsumer<LocalDate, Map<LocalDateTime, List<MasterDto>>> sink = invocation.getArgument(4);
+            sink.accept(date, slots);
+            sink.accept(date.plusDays(1), Map.of());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        MvcResult result = mockMvc.perform(get("/catalog/companies/1/services/2/times/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("id:2024-01-15")))
+                .andExpect(content().string(containsString("event:slots")))
+                .andExpect(content().string(containsString("\"username\":\"Alice\"")))
+                .andExpect(content().string(not(containsString("id:2024-01-16"))));
+    }
+
+    @Test
+    void streamTimesTimeoutCancelsRemainingDates() throws Exception {
+        CompletableFuture<Void> dates = new CompletableFuture<>();
+        when(bookingCatalogService.streamTimes(anyLong(), anyLong(), any(), any(), any())).thenReturn(dates);
+
+        MvcResult result = mockMvc.perform(get("/catalog/companies/1/services/2/times/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        assertThat(dates).isCancelled();
+    }
+
+    @Test
+    void streamTimesUnknownCompanyReturns404BeforeStreaming() throws Exception {
+        when(bookingCatalogService.streamTimes(anyLong(), anyLong(), any(), any(), any())).thenThrow(
+                new DikidiApiException(HttpStatus.NOT_FOUND, "1", "Company not found"));
+
+        mockMvc.perform(get("/catalog/companies/1/services/2/times/stream"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("1"));
+    }
+
+    @Test
+    void getAllTimesWithLimitReturnsNextCursorHeader() throws Exception {
+        LocalDateTime next = LocalDateTime.of(2024, 1, 15, 10, 0);
+        when(bookingCatalogService.getTimesPage(anyLong(), anyLong(), any(), any(), isNull(), eq(1)))
+                .thenReturn(new TimesPage(slotTable(next, new MasterDto(1L, "Alice")), next));
+
+        mockMvc.perform(get("/catalog/companies/1/services/2/times")
+                        .param("from", "2024-01-01")
+                        .param("to", "2024-01-31")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BookingCatalogController.NEXT_CURSOR_HEADER, new TimesCursor(
+                        1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), next).encode()))
+                .andExpect(jsonPath("$.*[0].username").value("Alice"));
+    }
+
+    @Test
+    void getAllTimesWithCursorResumesAfterItWithinItsRange() throws Exception {
+        LocalDateTime after = LocalDateTime.of(2024, 1, 15, 10, 0);
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(bookingCatalogService.getTimesPage(eq(1L), eq(2L), eq(from), eq(to), eq(after), anyInt()))
+                .thenReturn(new TimesPage(SlotTable.empty(), null));
+
+        mockMvc.perform(get("/catalog/companies/1/services/2/times")
+                        .param("cursor", new TimesCursor(1L, 2L, from, to, after).encode()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(BookingCatalogController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void getAllTimesCursorOfAnotherServiceReturns400() throws Exception {
+        String cursor = new TimesCursor(1L, 3L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                LocalDateTime.of(2024, 1, 15, 10, 0)).encode();
+
+        mockMvc.perform(get("/catalog/companies/1/services/2/times").param("cursor", cursor))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_CURSOR"));
+    }
+
+    @Test
+    void getAllTimesCursorWithDifferentRangeReturns400() throws Exception {
+        String cursor = new TimesCursor(1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                LocalDateTime.of(2024, 1, 15, 10, 0)).encode();
+
+        mockMvc.perform(get("/catalog/companies/1/services/2/times")
+                        .param("cursor", cursor)
+                        .param("to", "2024-02-29"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_CURSOR"));
+    }
+
+    @Test
+    void getAllTimesMalformedCursorReturns400() throws Exception {
+        mockMvc.perform(get("/catalog/companies/1/services/2/times").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_CURSOR"));
+    }
+
+    @Test
+    void getAllTimesReversedRangeReturns400() throws Exception {
+        mockMvc.perform(get("/catalog/companies/1/services/2/times")
+                        .param("from", "2024-02-01")
+                        .param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_RANGE"));
+    }
+
+    @TestConfiguration
+    static class SseExecutorConfig {
+
+        @Bean
+        Executor sseExecutor() {
+            return Runnable::run;
+        }
+    }
+
+    private static SlotTable slotTable(LocalDateTime slot, MasterDto master) {
+        SlotTable.Builder builder = SlotTable.builder();
+        return builder.add(slot, builder.master(master)).build();
+    }
 }
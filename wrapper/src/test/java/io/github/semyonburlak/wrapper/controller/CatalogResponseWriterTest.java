@@ -0,0 +1,67 @@
+package io.github.semyonburlak.wrapper.controller;
+
+import io.github.semyonburlak.dto.ServiceDto;
+import io.github.semyonburlak.wrapper.config.CompressionProps;
+import io.github.semyonburlak.wrapper.support.WrapperTestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogResponseWriterTest {
+
+    private CatalogResponseWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new CatalogResponseWriter(
+                WrapperTestConfig.buildObjectMapper(), new CompressionProps(DataSize.ofBytes(256), 100));
+    }
+
+    @Test
+    void cachedValueIsEncodedOnce() {
+        List<ServiceDto> services = services(50);
+
+        ResponseEntity<byte[]> first = writer.cached(ResponseEntity.ok(), services, "gzip");
+        ResponseEntity<byte[]> second = writer.cached(ResponseEntity.ok(), services, "gzip");
+        ResponseEntity<byte[]> plain = writer.cached(ResponseEntity.ok(), services, null);
+
+        assertThat(first.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(second.getBody()).isSameAs(first.getBody());
+        assertThat(plain.getHeaders().containsHeader(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(plain.getBody().length).isGreaterThan(first.getBody().length);
+        assertThat(first.getHeaders().getETag()).isEqualTo(second.getHeaders().getETag())
+                .isNotEqualTo(plain.getHeaders().getETag());
+    }
+
+    @Test
+    void smallBodyIsNotCompressed() {
+        ResponseEntity<byte[]> response = writer.cached(ResponseEntity.ok(), services(1), "gzip");
+
+        assertThat(response.getHeaders().containsHeader(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(new String(response.getBody())).isEqualTo("[{\"id\":0,\"name\":\"Service 0\"}]");
+    }
+
+    @Test
+    void acceptsGzipHonoursQualityAndWildcard() {
+        assertThat(CatalogResponseWriter.acceptsGzip("br, gzip;q=0.8")).isTrue();
+        assertThat(CatalogResponseWriter.acceptsGzip("*")).isTrue();
+        assertThat(CatalogResponseWriter.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(CatalogResponseWriter.acceptsGzip("br, deflate")).isFalse();
+        assertThat(CatalogResponseWriter.acceptsGzip(null)).isFalse();
+    }
+
+    private static List<ServiceDto> services(int count) {
+        List<ServiceDto> services = new ArrayList<>();
+        for (long id = 0; id < count; id++) {
+            services.add(new ServiceDto(id, "Service " + id));
+        }
+        return services;
+    }
+}
@@ -51,6 +51,16 @@ class DikidiResponseTest {
                         .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
     }
 
+    @Test
+    void resolveCircuitOpenCodeThrowsWith503() {
+        DikidiResponse<String> response = DikidiResponse.of(
+                DikidiResult.fail("CIRCUIT_OPEN", "Upstream circuit is open"), null);
+        assertThatThrownBy(response::resolve)
+                .isInstanceOf(DikidiApiException.class)
+                .satisfies(e -> assertThat(((DikidiApiException) e).getStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
     @Test
     void resolveNullRootCodeThrowsWith502() {
         DikidiResponse<String> response = DikidiResponse.of(
@@ -0,0 +1,117 @@
+package io.github.semyonburlak.wrapper.dto;
+
+import io.github.semyonburlak.dto.MasterDto;
+import io.github.semyonburlak.wrapper.support.WrapperTestConfig;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlotTableTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2024, 1, 15, 9, 0);
+    private static final LocalDateTime TEN = LocalDateTime.of(2024, 1, 15, 10, 0);
+    private static final LocalDateTime NEXT_DAY = LocalDateTime.of(2024, 1, 16, 8, 30);
+    private static final MasterDto ALICE = new MasterDto(1L, "Alice");
+    private static final MasterDto BOB = new MasterDto(2L, "Bob");
+
+    @Test
+    void builderSortsSlotsAndDropsDuplicatePairs() {
+        SlotTable.Builder builder = SlotTable.builder();
+        int alice = builder.master(ALICE);
+        int bob = builder.master(BOB);
+        SlotTable table = builder.add(TEN, bob).add(NINE, alice).add(TEN, alice).add(TEN, bob).build();
+
+        assertThat(table).hasSize(2);
+        assertThat(table.entries()).isEqualTo(3);
+        assertThat(table.keySet()).containsExactly(NINE, TEN);
+        assertThat(table.get(TEN)).containsExactly(ALICE, BOB);
+        assertThat(table.containsKey(NINE.plusSeconds(30))).isFalse();
+        assertThat(table.get(NEXT_DAY)).isNull();
+    }
+
+    @Test
+    void equalsMapWithSameContent() {
+        SlotTable table = table(Map.of(NINE, List.of(ALICE), TEN, List.of(ALICE, BOB)));
+
+        assertThat(table).isEqualTo(Map.of(NINE, List.of(ALICE), TEN, List.of(ALICE, BOB)));
+    }
+
+    @Test
+    void mergeUnionsTablesAndSkipsSlotsUpToCursor() {
+        SlotTable first = table(Map.of(NINE, List.of(BOB), TEN, List.of(ALICE)));
+        SlotTable second = table(Map.of(TEN, List.of(BOB), NEXT_DAY, List.of(ALICE)));
+
+        SlotTable merged = SlotTable.merge(List.of(first, second), NINE);
+
+        assertThat(merged.keySet()).containsExactly(TEN, NEXT_DAY);
+        assertThat(merged.get(TEN)).containsExactly(BOB, ALICE);
+        assertThat(merged.get(NEXT_DAY)).containsExactly(ALICE);
+    }
+
+    @Test
+    void builderBuildsAgainAfterMoreTablesAreAdded() {
+        SlotTable.Builder builder = SlotTable.builder();
+
+        SlotTable first = builder.addAll(table(Map.of(TEN, List.of(ALICE))), null).build();
+        SlotTable both = builder.addAll(table(Map.of(NINE, List.of(BOB), TEN, List.of(ALICE))), null).build();
+
+        assertThat(first.keySet()).containsExactly(TEN);
+        assertThat(both.keySet()).containsExactly(NINE, TEN);
+        assertThat(both.get(TEN)).containsExactly(ALICE);
+        assertThat(both.entries()).isEqualTo(2);
+    }
+
+    @Test
+    void headKeepsFirstSlotsWithAllTheirMasters() {
+        SlotTable table = table(Map.of(NINE, List.of(ALICE, BOB), TEN, List.of(ALICE), NEXT_DAY, List.of(BOB)));
+
+        SlotTable head = table.head(2);
+
+        assertThat(head.keySet()).containsExactly(NINE, TEN);
+        assertThat(head.get(NINE)).hasSize(2);
+        assertThat(head.lastKey()).isEqualTo(TEN);
+        assertThat(table.head(5)).isSameAs(table);
+    }
+
+    @Test
+    void contentHashFollowsSerializedContent() {
+        SlotTable table = table(Map.of(NINE, List.of(ALICE), TEN, List.of(BOB)));
+
+        assertThat(table(Map.of(NINE, List.of(ALICE), TEN, List.of(BOB))).contentHash())
+                .isEqualTo(table.contentHash());
+        assertThat(table(Map.of(NINE, List.of(ALICE), TEN, List.of(new MasterDto(2L, "Bobby")))).contentHash())
+                .isNotEqualTo(table.contentHash());
+        assertThat(table(Map.of(NINE, List.of(ALICE), NEXT_DAY, List.of(BOB))).contentHash())
+                .isNotEqualTo(table.contentHash());
+    }
+
+    @Test
+    void serializesLikeTheEquivalentSortedMap() throws Exception {
+        ObjectMapper objectMapper = WrapperTestConfig.buildObjectMapper();
+        Map<LocalDateTime, List<MasterDto>> slots = new TreeMap<>(Map.of(
+                NINE, List.of(ALICE),
+                TEN, List.of(ALICE, new MasterDto(3L, null)),
+                NEXT_DAY, List.of(BOB)));
+
+        assertThat(objectMapper.writeValueAsString(table(slots)))
+                .isEqualTo(objectMapper.writeValueAsString(slots))
+                .startsWith("{\"2024-01-15T09:00\":[{\"id\":1,\"username\":\"Alice\"}]");
+        assertThat(objectMapper.writeValueAsString(SlotTable.empty())).isEqualTo("{}");
+    }
+
+    private static SlotTable table(Map<LocalDateTime, List<MasterDto>> slots) {
+        SlotTable.Builder builder = SlotTable.builder();
+        Map<MasterDto, Integer> indexes = new LinkedHashMap<>();
+        new TreeMap<>(slots).forEach((slot, masters) -> new ArrayList<>(masters).forEach(master ->
+                builder.add(slot, indexes.computeIfAbsent(master, builder::master))));
+        return builder.build();
+    }
+}
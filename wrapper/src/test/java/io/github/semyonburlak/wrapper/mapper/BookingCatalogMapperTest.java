@@ -110,4 +110,30 @@ class BookingCatalogMapperTest {
 
         assertThat(result).isEmpty();
     }
+
+    @Test
+    void toTimeMapSharesMasterInstancesAcrossResponses() {
+        Map<String, DikidiMaster> masters = Map.of("1", new DikidiMaster(1L, "Alice"));
+        LocalDateTime monday = LocalDateTime.of(2024, 1, 15, 10, 0);
+        LocalDateTime tuesday = LocalDateTime.of(2024, 1, 16, 10, 0);
+
+        MasterDto first = mapper.toTimeMap(new DikidiSlotsData(masters, Map.of("1", List.of("2024-01-15 10:00:00"))))
+                .get(monday).getFirst();
+        MasterDto second = mapper.toTimeMap(new DikidiSlotsData(masters, Map.of("1", List.of("2024-01-16 10:00:00"))))
+                .get(tuesday).getFirst();
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void toCategoryDtoListSharesEqualCategoriesAndServices() {
+        DikidiServicesData data = new DikidiServicesData(
+                Map.of("1", new DikidiCategory(1L, "Hair", List.of(new DikidiService(101L, "Cut")))));
+
+        CategoryDto first = mapper.toCategoryDtoList(data).getFirst();
+        CategoryDto second = mapper.toCategoryDtoList(data).getFirst();
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.services().getFirst()).isSameAs(first.services().getFirst());
+    }
 }
@@ -1,28 +1,45 @@
 package io.github.semyonburlak.wrapper.service;
 
 import io.github.semyonburlak.dto.AppointmentPageDto;
+import io.github.semyonburlak.wrapper.client.CallContext;
 import io.github.semyonburlak.wrapper.client.DikidiHttpClient;
+import io.github.semyonburlak.wrapper.config.RecordsBatchProps;
 import io.github.semyonburlak.wrapper.dto.DikidiResponse;
 import io.github.semyonburlak.wrapper.dto.DikidiResult;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiRecordsData;
+import io.github.semyonburlak.wrapper.dto.dikidi.DikidiRecordsInfo;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiTimeReservation;
 import io.github.semyonburlak.wrapper.exception.DikidiApiException;
+import jakarta.annotation.Nullable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MultiValueMap;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class AppointmentServiceTest {
@@ -30,11 +47,15 @@ class AppointmentServiceTest {
     @Mock
     private DikidiHttpClient dikidiHttpClient;
 
-    @InjectMocks
+    @Mock
+    private AuthService authService;
+
     private AppointmentService appointmentService;
 
     @BeforeEach
     void setUp() {
+        appointmentService = new AppointmentService(
+                dikidiHttpClient, authService, new RecordsBatchProps(Duration.ofSeconds(5), 2));
         ReflectionTestUtils.setField(appointmentService, "dateTimePattern", "yyyy-MM-dd HH:mm:ss");
     }
 
@@ -72,6 +93,7 @@ class AppointmentServiceTest {
                 .isInstanceOf(DikidiApiException.class)
                 .satisfies(e -> assertThat(((DikidiApiException) e).getStatus())
                         .isEqualTo(HttpStatus.UNAUTHORIZED));
+        verify(authService).invalidate("token=expired");
     }
 
     @Test
@@ -79,7 +101,7 @@ class AppointmentServiceTest {
         DikidiTimeReservation expected = new DikidiTimeReservation(1L, 2L, "1:00");
         DikidiResponse<DikidiTimeReservation> response = DikidiResponse.of(
                 DikidiResult.ok(expected), null);
-        doReturn(response).when(dikidiHttpClient).get(anyString(), any(), any());
+        doReturn(response).when(dikidiHttpClient).get(anyString(), any(), any(), any(CallContext.class));
 
         DikidiTimeReservation result = appointmentService.getTimeReservation(
                 1L, 2L, 3L, LocalDateTime.of(2024, 1, 15, 10, 0));
@@ -91,7 +113,7 @@ class AppointmentServiceTest {
     void getTimeReservationSpecialistNotFoundThrowsWith404() {
         DikidiResponse<DikidiTimeReservation> response = DikidiResponse.of(
                 DikidiResult.fail("1", "Specialist not found"), null);
-        doReturn(response).when(dikidiHttpClient).get(anyString(), any(), any());
+        doReturn(response).when(dikidiHttpClient).get(anyString(), any(), any(), any(CallContext.class));
 
         assertThatThrownBy(() -> appointmentService.getTimeReservation(
                 940010L, 0L, 9190182L, LocalDateTime.of(2026, 4, 1, 10, 0, 0)))
@@ -104,7 +126,7 @@ class AppointmentServiceTest {
     void getTimeReservationCompanyErrorThrowsWith404() {
         DikidiResponse<DikidiTimeReservation> response = DikidiResponse.of(
                 DikidiResult.fail("COMPANY_ERROR", "Company not found"), null);
-        doReturn(response).when(dikidiHttpClient).get(anyString(), any(), any());
+        doReturn(response).when(dikidiHttpClient).get(anyString(), any(), any(), any(CallContext.class));
 
         assertThatThrownBy(() -> appointmentService.getTimeReservation(
                 0L, 0L, 0L, LocalDateTime.of(2026, 4, 1, 10, 0, 0)))
@@ -112,4 +134,119 @@ class AppointmentServiceTest {
                 .satisfies(e -> assertThat(((DikidiApiException) e).getStatus())
                         .isEqualTo(HttpStatus.NOT_FOUND));
     }
+
+    private static DikidiRecordsData recordsData(long... recordIds) {
+        DikidiRecordsData data = new DikidiRecordsData();
+        for (long recordId : recordIds) {
+            data.addEntry(String.valueOf(recordId), new DikidiRecordsInfo(null));
+        }
+        return data;
+    }
+
+    /**
+     * Answers a records_info call: a call for record 9 stays in flight until {@code release} opens, and a call
+     * containing {@code forbiddenId} is refused the way upstream refuses another company's record.
+     */
+    private static DikidiResponse<DikidiRecordsData> answerRecords(
+            MultiValueMap<String, String> params, CountDownLatch inFlight, CountDownLatch release,
+            @Nullable String forbiddenId) throws InterruptedException {
+        List<String> recordIds = params.get("record_id_list[]");
+        if (recordIds.contains("9")) {
+            inFlight.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        if (recordIds.contains(forbiddenId)) {
+            throw new DikidiApiException(HttpStatus.FORBIDDEN, "ACCESS_DENIED", "Record is not accessible");
+        }
+        return DikidiResponse.of(DikidiResult.ok(
+                recordsData(recordIds.stream().mapToLong(Long::parseLong).toArray())), null);
+    }
+
+    @Test
+    void getRecordsDataBatchSendsEveryDistinctRecordId() {
+        doReturn(DikidiResponse.of(DikidiResult.ok(recordsData(10L, 11L)), null)).when(dikidiHttpClient)
+                .get(anyString(), any(MultiValueMap.class), anyString(), eq(DikidiRecordsData.class), any());
+
+        DikidiRecordsData result = appointmentService.getRecordsData(1L, List.of(10L, 11L, 10L), "abc");
+
+        assertThat(result.getEntries()).containsOnlyKeys("10", "11");
+        verify(dikidiHttpClient).get(anyString(),
+                argThat((MultiValueMap<String, String> params) ->
+                        params.get("record_id_list[]").equals(List.of("10", "11"))
+                                && params.getFirst("companyId").equals("1")),
+                eq("abc"), eq(DikidiRecordsData.class), any());
+    }
+
+    @Test
+    void getRecordsDataBatchAboveMaxSizeIsRejectedWith400() {
+        assertThatThrownBy(() -> appointmentService.getRecordsData(1L, List.of(10L, 11L, 12L), "abc"))
+                .isInstanceOf(DikidiApiException.class)
+                .satisfies(e -> {
+                    DikidiApiException ex = (DikidiApiException) e;
+                    assertThat(ex.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+                    assertThat(ex.getCode()).isEqualTo("TOO_MANY_RECORDS");
+                });
+        verify(dikidiHttpClient, never())
+                .get(anyString(), any(MultiValueMap.class), anyString(), eq(DikidiRecordsData.class), any());
+    }
+
+    @Test
+    void singleRecordLookupsArrivingDuringACallShareTheNextOneAndGetOwnEntry() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> answerRecords(invocation.getArgument(1), inFlight, release, null))
+                .when(dikidiHttpClient)
+                .get(anyString(), any(MultiValueMap.class), anyString(), eq(DikidiRecordsData.class), any());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<DikidiRecordsData> blocking = CompletableFuture.supplyAsync(
+                    () -> appointmentService.getRecordsData(1L, 9L, "abc"), executor);
+            assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<DikidiRecordsData> first = CompletableFuture.supplyAsync(
+                    () -> appointmentService.getRecordsData(1L, 10L, "abc"), executor);
+            CompletableFuture<DikidiRecordsData> second = CompletableFuture.supplyAsync(
+                    () -> appointmentService.getRecordsData(1L, 11L, "abc"), executor);
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getEntries()).containsOnlyKeys("10");
+            assertThat(second.get(5, TimeUnit.SECONDS).getEntries()).containsOnlyKeys("11");
+            release.countDown();
+            assertThat(blocking.get(5, TimeUnit.SECONDS).getEntries()).containsOnlyKeys("9");
+        }
+        verify(dikidiHttpClient, times(2))
+                .get(anyString(), any(MultiValueMap.class), anyString(), eq(DikidiRecordsData.class), any());
+    }
+
+    @Test
+    void inaccessibleRecordInSharedCallOnlyFailsItsOwnLookup() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> answerRecords(invocation.getArgument(1), inFlight, release, "12"))
+                .when(dikidiHttpClient)
+                .get(anyString(), any(MultiValueMap.class), anyString(), eq(DikidiRecordsData.class), any());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<DikidiRecordsData> blocking = CompletableFuture.supplyAsync(
+                    () -> appointmentService.getRecordsData(1L, 9L, "abc"), executor);
+            assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<DikidiRecordsData> good = CompletableFuture.supplyAsync(
+                    () -> appointmentService.getRecordsData(1L, 10L, "abc"), executor);
+            CompletableFuture<DikidiRecordsData> bad = CompletableFuture.supplyAsync(
+                    () -> appointmentService.getRecordsData(1L, 12L, "abc"), executor);
+
+            assertThat(good.get(5, TimeUnit.SECONDS).getEntries()).containsOnlyKeys("10");
+            assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(DikidiApiException.class);
+            release.countDown();
+            blocking.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void singleRecordMissingFromResponseYieldsEmptyData() {
+        appointmentService = new AppointmentService(
+                dikidiHttpClient, authService, new RecordsBatchProps(Duration.ZERO, 2));
+        doReturn(DikidiResponse.of(DikidiResult.ok(recordsData()), null)).when(dikidiHttpClient)
+                .get(anyString(), any(MultiValueMap.class), anyString(), eq(DikidiRecordsData.class), any());
+
+        assertThat(appointmentService.getRecordsData(1L, 10L, "abc").getEntries()).isEmpty();
+    }
 }
@@ -1,26 +1,39 @@
 package io.github.semyonburlak.wrapper.service;
 
+import io.github.semyonburlak.wrapper.client.CallContext;
 import io.github.semyonburlak.wrapper.client.DikidiHttpClient;
+import io.github.semyonburlak.wrapper.config.CacheProps;
 import io.github.semyonburlak.wrapper.dto.DikidiResponse;
 import io.github.semyonburlak.wrapper.dto.DikidiResult;
 import io.github.semyonburlak.wrapper.dto.dikidi.AuthCallback;
 import io.github.semyonburlak.wrapper.exception.DikidiApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.LinkedMultiValueMap;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class AuthServiceTest {
@@ -28,9 +41,24 @@ class AuthServiceTest {
     @Mock
     private DikidiHttpClient authHttpClient;
 
-    @InjectMocks
     private AuthService authService;
 
+    @BeforeEach
+    void setUp() {
+        CacheProps cacheProps = new CacheProps(
+                new CacheProps.Categories(1000, Duration.ofHours(1), Duration.ofMinutes(10), 1),
+                new CacheProps.Slots(1000, Duration.ofMinutes(2), Duration.ofSeconds(30)),
+                new CacheProps.Sessions(100, Duration.ofMinutes(30), Duration.ofMinutes(1)));
+        authService = new AuthService(authHttpClient, cacheProps, new SimpleMeterRegistry());
+    }
+
+    private static LinkedMultiValueMap<String, String> credentials(String number, String password) {
+        LinkedMultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("number", number);
+        body.add("password", password);
+        return body;
+    }
+
     private DikidiResponse<AuthCallback> okResponseWithCookies(List<String> cookies) {
         HttpHeaders headers = new HttpHeaders();
         headers.put(HttpHeaders.SET_COOKIE, cookies);
@@ -40,7 +68,7 @@ class AuthServiceTest {
     @Test
     void loginSuccessReturnsTokenCookie() {
         DikidiResponse<AuthCallback> response = okResponseWithCookies(List.of("token=abc; Path=/"));
-        doReturn(response).when(authHttpClient).post(anyString(), any(), any());
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
 
         String result = authService.login(new LinkedMultiValueMap<>());
 
@@ -51,7 +79,7 @@ class AuthServiceTest {
     void loginTokenNotFirstCookieExtractsCorrectly() {
         DikidiResponse<AuthCallback> response = okResponseWithCookies(
                 List.of("session=xyz; Path=/", "token=abc; Path=/"));
-        doReturn(response).when(authHttpClient).post(anyString(), any(), any());
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
 
         String result = authService.login(new LinkedMultiValueMap<>());
 
@@ -62,7 +90,7 @@ class AuthServiceTest {
     void loginNoCookiesReturnedThrowsCookiesDidNotReturn() {
         DikidiResponse<AuthCallback> response = DikidiResponse.of(
                 DikidiResult.ok(new AuthCallback(null)), null);
-        doReturn(response).when(authHttpClient).post(anyString(), any(), any());
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
 
         assertThatThrownBy(() -> authService.login(new LinkedMultiValueMap<>()))
                 .isInstanceOf(DikidiApiException.class)
@@ -76,7 +104,7 @@ class AuthServiceTest {
     @Test
     void loginCookiesWithoutTokenThrowsNoToken() {
         DikidiResponse<AuthCallback> response = okResponseWithCookies(List.of("session=xyz; Path=/"));
-        doReturn(response).when(authHttpClient).post(anyString(), any(), any());
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
 
         assertThatThrownBy(() -> authService.login(new LinkedMultiValueMap<>()))
                 .isInstanceOf(DikidiApiException.class)
@@ -91,7 +119,7 @@ class AuthServiceTest {
     void loginDikidiUserAuthErrorThrowsUnauthorized() {
         DikidiResponse<AuthCallback> response = DikidiResponse.of(
                 DikidiResult.fail("USER_AUTHORISATION_ERROR", "wrong credentials"), null);
-        doReturn(response).when(authHttpClient).post(anyString(), any(), any());
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
 
         assertThatThrownBy(() -> authService.login(new LinkedMultiValueMap<>()))
                 .isInstanceOf(DikidiApiException.class)
@@ -103,11 +131,110 @@ class AuthServiceTest {
     void loginDikidiDataErrorThrowsBadRequest() {
         DikidiResponse<AuthCallback> response = DikidiResponse.of(
                 DikidiResult.fail("USER_AUTHORISATION_DATA_ERROR", "bad data"), null);
-        doReturn(response).when(authHttpClient).post(anyString(), any(), any());
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
 
         assertThatThrownBy(() -> authService.login(new LinkedMultiValueMap<>()))
                 .isInstanceOf(DikidiApiException.class)
                 .satisfies(e -> assertThat(((DikidiApiException) e).getStatus())
                         .isEqualTo(HttpStatus.BAD_REQUEST));
     }
+
+    @Test
+    void loginReusesValidTokenForSameCredentials() {
+        DikidiResponse<AuthCallback> response = okResponseWithCookies(List.of("token=abc; Path=/"));
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
+
+        assertThat(authService.login(credentials("79990000000", "secret"))).isEqualTo("token=abc; Path=/");
+        assertThat(authService.login(credentials("79990000000", "secret"))).isEqualTo("token=abc; Path=/");
+
+        verify(authHttpClient, times(1)).post(anyString(), any(), any(), any(CallContext.class));
+    }
+
+    @Test
+    void loginWithOtherCredentialsLogsInAgain() {
+        DikidiResponse<AuthCallback> response = okResponseWithCookies(List.of("token=abc; Path=/"));
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
+
+        authService.login(credentials("79990000000", "secret"));
+        authService.login(credentials("79990000000", "other"));
+
+        verify(authHttpClient, times(2)).post(anyString(), any(), any(), any(CallContext.class));
+    }
+
+    @Test
+    void loginDoesNotReuseTokenExpiringWithinMargin() {
+        DikidiResponse<AuthCallback> response = okResponseWithCookies(List.of("token=abc; Max-Age=30; Path=/"));
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
+
+        authService.login(credentials("79990000000", "secret"));
+        authService.login(credentials("79990000000", "secret"));
+
+        verify(authHttpClient, times(2)).post(anyString(), any(), any(), any(CallContext.class));
+    }
+
+    @Test
+    void loginDoesNotReuseTokenPastSessionCookieTtl() {
+        DikidiResponse<AuthCallback> response = okResponseWithCookies(List.of("token=abc; Max-Age=86400; Path=/"));
+        doReturn(response).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
+        CacheProps cacheProps = new CacheProps(
+                new CacheProps.Categories(1000, Duration.ofHours(1), Duration.ofMinutes(10), 1),
+                new CacheProps.Slots(1000, Duration.ofMinutes(2), Duration.ofSeconds(30)),
+                new CacheProps.Sessions(100, Duration.ZERO, Duration.ofMinutes(1)));
+        AuthService shortLived = new AuthService(authHttpClient, cacheProps, new SimpleMeterRegistry());
+
+        shortLived.login(credentials("79990000000", "secret"));
+        shortLived.login(credentials("79990000000", "secret"));
+
+        verify(authHttpClient, times(2)).post(anyString(), any(), any(), any(CallContext.class));
+    }
+
+    @Test
+    void invalidatedTokenIsNotReused() {
+        doReturn(okResponseWithCookies(List.of("token=abc; Path=/")))
+                .doReturn(okResponseWithCookies(List.of("token=def; Path=/")))
+                .when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
+
+        assertThat(authService.login(credentials("79990000000", "secret"))).isEqualTo("token=abc; Path=/");
+        authService.invalidate("token=other");
+        assertThat(authService.login(credentials("79990000000", "secret"))).isEqualTo("token=abc; Path=/");
+        authService.invalidate("abc");
+
+        assertThat(authService.login(credentials("79990000000", "secret"))).isEqualTo("token=def; Path=/");
+        verify(authHttpClient, times(2)).post(anyString(), any(), any(), any(CallContext.class));
+    }
+
+    @Test
+    void loginFailureIsNotCached() {
+        doThrow(new DikidiApiException(HttpStatus.BAD_GATEWAY, "UPSTREAM", "down"))
+                .doReturn(okResponseWithCookies(List.of("token=abc; Path=/")))
+                .when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
+
+        assertThatThrownBy(() -> authService.login(credentials("79990000000", "secret")))
+                .isInstanceOf(DikidiApiException.class);
+        assertThat(authService.login(credentials("79990000000", "secret"))).isEqualTo("token=abc; Path=/");
+    }
+
+    @Test
+    void concurrentLoginsForSameCredentialsShareOneCall() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(_ -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return okResponseWithCookies(List.of("token=abc; Path=/"));
+        }).when(authHttpClient).post(anyString(), any(), any(), any(CallContext.class));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(
+                    () -> authService.login(credentials("79990000000", "secret")), executor);
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(
+                    () -> authService.login(credentials("79990000000", "secret")), executor);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("token=abc; Path=/");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("token=abc; Path=/");
+        }
+        verify(authHttpClient, times(1)).post(anyString(), any(), any(), any(CallContext.class));
+    }
 }
@@ -1,10 +1,19 @@
 package io.github.semyonburlak.wrapper.service;
 
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
 import io.github.semyonburlak.dto.CategoryDto;
 import io.github.semyonburlak.dto.MasterDto;
+import io.github.semyonburlak.dto.ServiceDto;
+import io.github.semyonburlak.wrapper.client.CallContext;
 import io.github.semyonburlak.wrapper.client.DikidiHttpClient;
+import io.github.semyonburlak.wrapper.client.FairScheduler;
+import io.github.semyonburlak.wrapper.client.Priority;
+import io.github.semyonburlak.wrapper.config.CacheProps;
 import io.github.semyonburlak.wrapper.dto.DikidiResponse;
 import io.github.semyonburlak.wrapper.dto.DikidiResult;
+import io.github.semyonburlak.wrapper.dto.SlotTable;
+import io.github.semyonburlak.wrapper.dto.TimesPage;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiCategory;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiDatesTrue;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiMaster;
@@ -13,6 +22,8 @@ import io.github.semyonburlak.wrapper.dto.dikidi.DikidiServicesData;
 import io.github.semyonburlak.wrapper.dto.dikidi.DikidiSlotsData;
 import io.github.semyonburlak.wrapper.exception.DikidiApiException;
 import io.github.semyonburlak.wrapper.mapper.BookingCatalogMapper;
+import io.github.semyonburlak.wrapper.util.WindowedFanOut;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,17 +31,28 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class BookingCatalogServiceTest {
@@ -38,11 +60,23 @@ class BookingCatalogServiceTest {
     @Mock
     private DikidiHttpClient dikidiHttpClient;
 
+    private final PopularityTracker popularity = new PopularityTracker();
+
     private BookingCatalogService service;
 
     @BeforeEach
     void setUp() {
-        service = new BookingCatalogService(dikidiHttpClient, new BookingCatalogMapper());
+        service = newService();
+    }
+
+    private BookingCatalogService newService() {
+        CacheProps cacheProps = new CacheProps(
+                new CacheProps.Categories(1000, Duration.ofHours(1), Duration.ofMinutes(10), 1),
+                new CacheProps.Slots(1000, Duration.ofMinutes(2), Duration.ofSeconds(30)),
+                new CacheProps.Sessions(100, Duration.ofMinutes(30), Duration.ofMinutes(1)));
+        return new BookingCatalogService(
+                dikidiHttpClient, new BookingCatalogMapper(), Runnable::run, cacheProps, new WindowedFanOut(16),
+                popularity, new SimpleMeterRegistry());
     }
 
     @Test
@@ -70,6 +104,32 @@ class BookingCatalogServiceTest {
                         .isEqualTo(HttpStatus.NOT_FOUND));
     }
 
+    @Test
+    void getCategoriesRepeatedCallServedFromCache() {
+        DikidiServicesData data = new DikidiServicesData(
+                Map.of("1", new DikidiCategory(1L, "Hair", List.of(new DikidiService(101L, "Cut")))));
+        doReturn(DikidiResponse.of(DikidiResult.ok(data), null))
+                .when(dikidiHttpClient).get(any(), any(), eq(DikidiServicesData.class));
+
+        List<CategoryDto> first = service.getCategories(1L);
+        List<CategoryDto> second = service.getCategories(1L);
+
+        assertThat(second).isSameAs(first);
+        verify(dikidiHttpClient, times(1)).get(any(), any(), eq(DikidiServicesData.class));
+    }
+
+    @Test
+    void getCategoriesErrorIsNotCached() {
+        DikidiServicesData data = new DikidiServicesData(
+                Map.of("1", new DikidiCategory(1L, "Hair", List.of())));
+        doReturn(DikidiResponse.of(DikidiResult.fail("NETWORK", "timeout"), null))
+                .doReturn(DikidiResponse.of(DikidiResult.ok(data), null))
+                .when(dikidiHttpClient).get(any(), any(), eq(DikidiServicesData.class));
+
+        assertThatThrownBy(() -> service.getCategories(1L)).isInstanceOf(DikidiApiException.class);
+        assertThat(service.getCategories(1L)).hasSize(1);
+    }
+
     @Test
     void getDatesTrueSuccessReturnsLocalDates() {
         DikidiDatesTrue data = new DikidiDatesTrue(List.of("2024-01-15", "2024-01-16"));
@@ -95,8 +155,8 @@ class BookingCatalogServiceTest {
 
         doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
                 .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
-        doReturn(DikidiResponse.of(DikidiResult.ok(slotsData), null))
-                .when(dikidiHttpClient).get(contains("get_datetimes"), any(), eq(DikidiSlotsData.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.ok(slotsData), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
 
         Map<LocalDateTime, List<MasterDto>> result = service.getTimes(
                 1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30));
@@ -106,17 +166,273 @@ class BookingCatalogServiceTest {
         assertThat(result.get(slot).get(0).username()).isEqualTo("Alice");
     }
 
+    @Test
+    void getTimesRepeatedCallReadsSlotsFromCache() {
+        DikidiDatesTrue dates = new DikidiDatesTrue(List.of("2024-01-15", "2024-01-16"));
+        DikidiSlotsData slotsData = new DikidiSlotsData(
+                Map.of("1", new DikidiMaster(1L, "Alice")),
+                Map.of("1", List.of("2024-01-15 10:00:00")));
+        doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.ok(slotsData), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 6, 30);
+        Map<LocalDateTime, List<MasterDto>> first = service.getTimes(1L, 2L, from, to);
+        Map<LocalDateTime, List<MasterDto>> second = service.getTimes(1L, 2L, from, to);
+
+        assertThat(second).isEqualTo(first);
+        verify(dikidiHttpClient, times(2)).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+    }
+
+    @Test
+    void getTimesSlotErrorIsNotCached() {
+        DikidiDatesTrue dates = new DikidiDatesTrue(List.of("2024-01-15"));
+        DikidiSlotsData slotsData = new DikidiSlotsData(
+                Map.of("1", new DikidiMaster(1L, "Alice")),
+                Map.of("1", List.of("2024-01-15 10:00:00")));
+        doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.fail("NETWORK", "error"), null)))
+                .doReturn(completedFuture(DikidiResponse.of(DikidiResult.ok(slotsData), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 6, 30);
+        assertThat(service.getTimes(1L, 2L, from, to)).isEmpty();
+        assertThat(service.getTimes(1L, 2L, from, to)).hasSize(1);
+    }
+
     @Test
     void getTimesSlotErrorLogsAndReturnsEmptyMap() {
         DikidiDatesTrue dates = new DikidiDatesTrue(List.of("2024-01-15"));
         doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
                 .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
-        doReturn(DikidiResponse.of(DikidiResult.fail("NETWORK", "error"), null))
-                .when(dikidiHttpClient).get(contains("get_datetimes"), any(), eq(DikidiSlotsData.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.fail("NETWORK", "error"), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
 
         Map<LocalDateTime, List<MasterDto>> result = service.getTimes(
                 1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30));
 
         assertThat(result).isEmpty();
     }
+
+    @Test
+    void getTimesLongRangeThroughRealSchedulerReturnsEveryDate() {
+        RateLimiter limiter = RateLimiter.of("dikidi", RateLimiterConfig.custom()
+                .limitForPeriod(20)
+                .limitRefreshPeriod(Duration.ofMillis(50))
+                .timeoutDuration(Duration.ofSeconds(5))
+                .build());
+        FairScheduler scheduler = new FairScheduler(limiter, 8, 32, new SimpleMeterRegistry());
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        List<String> days = IntStream.range(0, 60)
+                .mapToObj(i -> LocalDate.of(2024, 1, 1).plusDays(i).toString())
+                .toList();
+        doReturn(DikidiResponse.of(DikidiResult.ok(new DikidiDatesTrue(days)), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doAnswer(invocation -> {
+            Map<String, String> params = invocation.getArgument(1);
+            CallContext context = invocation.getArgument(3);
+            DikidiSlotsData data = new DikidiSlotsData(
+                    Map.of("1", new DikidiMaster(1L, "Alice")),
+                    Map.of("1", List.of(params.get("date") + " 10:00:00")));
+            return scheduler.acquireAsync(context, timer)
+                    .thenApply(_ -> {
+                        scheduler.release(context);
+                        return DikidiResponse.of(DikidiResult.ok(data), null);
+                    })
+                    .exceptionally(_ -> DikidiResponse.of(DikidiResult.fail("RATE_LIMITED", "shed"), null));
+        }).when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+
+        try {
+            SlotTable times = service.getTimes(1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30));
+
+            assertThat(times).hasSize(60);
+            assertThat(scheduler.queued()).isZero();
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void getTimesDateRefusedByRateLimiterFailsWholeRequest() {
+        DikidiDatesTrue dates = new DikidiDatesTrue(List.of("2024-01-15", "2024-01-16"));
+        doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.ok(new DikidiSlotsData(Map.of(), Map.of())), null)))
+                .doReturn(completedFuture(DikidiResponse.of(DikidiResult.fail("RATE_LIMITED", "shed"), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+
+        assertThatThrownBy(() -> service.getTimes(1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30)))
+                .isInstanceOf(DikidiApiException.class)
+                .satisfies(e -> assertThat(((DikidiApiException) e).getStatus())
+                        .isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+    @Test
+    void getTimesDateRefusedByFullBulkheadFailsWholeRequest() {
+        DikidiDatesTrue dates = new DikidiDatesTrue(List.of("2024-01-15", "2024-01-16"));
+        doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.ok(new DikidiSlotsData(Map.of(), Map.of())), null)))
+                .doReturn(completedFuture(DikidiResponse.of(DikidiResult.fail("BULKHEAD_FULL", "full"), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+
+        assertThatThrownBy(() -> service.getTimes(1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30)))
+                .isInstanceOf(DikidiApiException.class)
+                .satisfies(e -> assertThat(((DikidiApiException) e).getStatus())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    void streamTimesPassesEachDateToSink() {
+        DikidiDatesTrue dates = new DikidiDatesTrue(List.of("2024-01-15", "2024-01-16"));
+        DikidiSlotsData slotsData = new DikidiSlotsData(
+                Map.of("1", new DikidiMaster(1L, "Alice")),
+                Map.of("1", List.of("2024-01-15 10:00:00")));
+        doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.ok(slotsData), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+
+        Map<LocalDate, Map<LocalDateTime, List<MasterDto>>> received = new ConcurrentHashMap<>();
+        service.streamTimes(1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30), received::put).join();
+
+        assertThat(received).containsOnlyKeys(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 16));
+        assertThat(received.get(LocalDate.of(2024, 1, 15))).containsKey(LocalDateTime.of(2024, 1, 15, 10, 0));
+    }
+
+    @Test
+    void getTimesPageStopsFetchingOnceLimitIsReached() {
+        stubDailySlots(List.of("2024-01-15", "2024-01-16", "2024-01-17", "2024-01-18", "2024-01-19"));
+
+        TimesPage page = service.getTimesPage(
+                1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30), null, 3);
+
+        assertThat(page.times()).containsOnlyKeys(
+                LocalDateTime.of(2024, 1, 15, 10, 0),
+                LocalDateTime.of(2024, 1, 15, 11, 0),
+                LocalDateTime.of(2024, 1, 16, 10, 0));
+        assertThat(page.next()).isEqualTo(LocalDateTime.of(2024, 1, 16, 10, 0));
+        verify(dikidiHttpClient, times(2)).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+    }
+
+    @Test
+    void getTimesPageResumesAfterCursor() {
+        stubDailySlots(List.of("2024-01-15", "2024-01-16"));
+
+        TimesPage page = service.getTimesPage(
+                1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30),
+                LocalDateTime.of(2024, 1, 16, 10, 0), 10);
+
+        assertThat(page.times()).containsOnlyKeys(LocalDateTime.of(2024, 1, 16, 11, 0));
+        assertThat(page.next()).isNull();
+        verify(dikidiHttpClient, times(1)).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+    }
+
+    @Test
+    void getTimesPageDoesNotWaitOnPendingBulkLoadThatGetsShed() {
+        stubDailySlots(List.of("2024-01-15"));
+        CompletableFuture<DikidiResponse<DikidiSlotsData>> bulkLoad = new CompletableFuture<>();
+        doReturn(bulkLoad).when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(),
+                eq(DikidiSlotsData.class), argThat((CallContext context) -> context.priority() == Priority.BULK));
+        CompletableFuture<SlotTable> prefetch = service.prefetchTimes(1L, 2L, LocalDate.of(2024, 1, 15));
+
+        TimesPage page = service.getTimesPage(
+                1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30), null, 10);
+        bulkLoad.complete(DikidiResponse.of(DikidiResult.fail("RATE_LIMITED", "shed"), null));
+
+        assertThat(page.times()).containsOnlyKeys(
+                LocalDateTime.of(2024, 1, 15, 10, 0),
+                LocalDateTime.of(2024, 1, 15, 11, 0));
+        assertThatThrownBy(prefetch::join).hasCauseInstanceOf(DikidiApiException.class);
+        verify(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class),
+                argThat((CallContext context) -> context.priority() == Priority.INTERACTIVE));
+        assertThat(service.getTimes(1L, 2L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30))).hasSize(2);
+    }
+
+    private void stubDailySlots(List<String> days) {
+        doReturn(DikidiResponse.of(DikidiResult.ok(new DikidiDatesTrue(days)), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doAnswer(invocation -> {
+            Map<String, String> params = invocation.getArgument(1);
+            String date = params.get("date");
+            DikidiSlotsData data = new DikidiSlotsData(
+                    Map.of("1", new DikidiMaster(1L, "Alice")),
+                    Map.of("1", List.of(date + " 10:00:00", date + " 11:00:00")));
+            return completedFuture(DikidiResponse.of(DikidiResult.ok(data), null));
+        }).when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+    }
+
+    @Test
+    void restoreFromSnapshotServesEntriesWithoutUpstreamCalls() {
+        DikidiServicesData data = new DikidiServicesData(
+                Map.of("1", new DikidiCategory(1L, "Hair", List.of(new DikidiService(101L, "Cut")))));
+        doReturn(DikidiResponse.of(DikidiResult.ok(data), null))
+                .when(dikidiHttpClient).get(any(), any(), eq(DikidiServicesData.class));
+        List<CategoryDto> categories = service.getCategories(1L);
+
+        CacheSnapshot snapshot = service.snapshot();
+        BookingCatalogService restarted = newService();
+
+        assertThat(snapshot.categories()).singleElement()
+                .satisfies(entry -> assertThat(entry.expiresAtMillis()).isGreaterThan(System.currentTimeMillis()));
+        assertThat(restarted.restore(snapshot)).isEqualTo(1);
+        assertThat(restarted.getCategories(1L)).isEqualTo(categories);
+        verify(dikidiHttpClient, times(1)).get(any(), any(), eq(DikidiServicesData.class));
+    }
+
+    @Test
+    void restoreSkipsExpiredEntries() {
+        long past = System.currentTimeMillis() - 1;
+        CacheSnapshot snapshot = new CacheSnapshot(List.of(new CacheSnapshot.Entry<>(1L, List.of(), past)));
+
+        assertThat(service.restore(snapshot)).isZero();
+        assertThat(service.snapshot().categories()).isEmpty();
+    }
+
+    @Test
+    void restoredCategoriesShareInstancesWithFreshlyMappedOnes() {
+        DikidiServicesData data = new DikidiServicesData(
+                Map.of("1", new DikidiCategory(1L, "Hair", List.of(new DikidiService(101L, "Cut")))));
+        doReturn(DikidiResponse.of(DikidiResult.ok(data), null))
+                .when(dikidiHttpClient).get(any(), any(), eq(DikidiServicesData.class));
+        CategoryDto fetched = service.getCategories(1L).getFirst();
+        List<CategoryDto> read = List.of(new CategoryDto(1L, "Hair", List.of(new ServiceDto(101L, "Cut"))));
+
+        service.restore(new CacheSnapshot(
+                List.of(new CacheSnapshot.Entry<>(2L, read, System.currentTimeMillis() + 60_000))));
+
+        assertThat(service.getCategories(2L).getFirst()).isSameAs(fetched);
+    }
+
+    @Test
+    void prefetchTimesWarmsSlotCacheAtBulkPriorityWithoutCountingPopularity() {
+        DikidiDatesTrue dates = new DikidiDatesTrue(List.of("2024-01-15"));
+        DikidiSlotsData slotsData = new DikidiSlotsData(
+                Map.of("1", new DikidiMaster(1L, "Alice")),
+                Map.of("1", List.of("2024-01-15 10:00:00")));
+        doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class), any());
+        doReturn(DikidiResponse.of(DikidiResult.ok(dates), null))
+                .when(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class));
+        doReturn(completedFuture(DikidiResponse.of(DikidiResult.ok(slotsData), null)))
+                .when(dikidiHttpClient).getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+
+        for (LocalDate date : service.prefetchDates(1L, 2L, from, to)) {
+            service.prefetchTimes(1L, 2L, date).join();
+        }
+
+        assertThat(popularity.top(1)).isEmpty();
+        verify(dikidiHttpClient).get(contains("get_dates_true"), any(), eq(DikidiDatesTrue.class),
+                argThat((CallContext context) -> context.priority() == Priority.BULK));
+        assertThat(service.getTimes(1L, 2L, from, to)).hasSize(1);
+        verify(dikidiHttpClient, times(1))
+                .getAsync(contains("get_datetimes"), any(), eq(DikidiSlotsData.class), any());
+        assertThat(popularity.top(1)).containsExactly(new PopularityTracker.ServicePair(1L, 2L));
+    }
 }
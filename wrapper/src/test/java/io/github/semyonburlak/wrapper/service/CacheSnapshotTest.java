@@ -0,0 +1,86 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.dto.CategoryDto;
+import io.github.semyonburlak.dto.ServiceDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheSnapshotTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void writeThenReadRoundTripsEntries() throws IOException {
+        List<CategoryDto> categories = List.of(
+                new CategoryDto(1L, "Hair", List.of(new ServiceDto(101L, "Cut"), new ServiceDto(102L, null))),
+                new CategoryDto(2L, "Nails", null));
+        CacheSnapshot snapshot = new CacheSnapshot(List.of(
+                new CacheSnapshot.Entry<>(7L, categories, 1000L),
+                new CacheSnapshot.Entry<>(8L, List.of(new CategoryDto(3L, "Брови", List.of())), 2000L)));
+        Path path = dir.resolve("snapshot.bin");
+
+        snapshot.write(path);
+        CacheSnapshot read = CacheSnapshot.read(path);
+
+        assertThat(read).isEqualTo(snapshot);
+        assertThat(Files.exists(dir.resolve("snapshot.bin.tmp"))).isFalse();
+    }
+
+    @Test
+    void snapshotLargerThanOneChunkIsWrittenCompletely() throws IOException {
+        List<CacheSnapshot.Entry<Long, List<CategoryDto>>> categories = new ArrayList<>();
+        for (long companyId = 0; companyId < 5_000; companyId++) {
+            categories.add(new CacheSnapshot.Entry<>(companyId,
+                    List.of(new CategoryDto(companyId, "Category " + "x".repeat(200), List.of())), companyId));
+        }
+        Path path = dir.resolve("snapshot.bin");
+
+        new CacheSnapshot(categories).write(path);
+
+        assertThat(Files.size(path)).isGreaterThan(1 << 20);
+        assertThat(CacheSnapshot.read(path).categories()).isEqualTo(categories);
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path path = dir.resolve("snapshot.bin");
+        new CacheSnapshot(List.of(new CacheSnapshot.Entry<>(1L, List.of(new CategoryDto(1L, "Hair", List.of())), 1L)))
+                .write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThatThrownBy(() -> CacheSnapshot.read(path)).isInstanceOf(IOException.class);
+        Files.writeString(path, "not a snapshot");
+        assertThatThrownBy(() -> CacheSnapshot.read(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void countLargerThanTheRestOfTheFileIsRejectedBeforeAllocating() throws IOException {
+        Path path = dir.resolve("snapshot.bin");
+        new CacheSnapshot(List.of(new CacheSnapshot.Entry<>(1L, List.of(new CategoryDto(1L, "Hair", List.of())), 1L)))
+                .write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        // magic, version, entry count, companyId, expiresAt, then the entry's category count
+        ByteBuffer.wrap(bytes).putInt(3 * Integer.BYTES + 2 * Long.BYTES, Integer.MAX_VALUE);
+        Files.write(path, bytes);
+
+        assertThatThrownBy(() -> CacheSnapshot.read(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("does not fit");
+        ByteBuffer.wrap(bytes).putInt(2 * Integer.BYTES, -5);
+        Files.write(path, bytes);
+        assertThatThrownBy(() -> CacheSnapshot.read(path)).isInstanceOf(IOException.class);
+    }
+}
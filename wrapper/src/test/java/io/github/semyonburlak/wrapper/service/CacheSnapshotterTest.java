@@ -0,0 +1,57 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.wrapper.config.SnapshotProps;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CacheSnapshotterTest {
+
+    @TempDir
+    private Path dir;
+
+    @Mock
+    private BookingCatalogService bookingCatalogService;
+
+    @Test
+    void writeBeforeRestoreFinishedLeavesSnapshotAlone() throws Exception {
+        Path path = dir.resolve("snapshot.bin");
+        new CacheSnapshot(List.of()).write(path);
+        byte[] before = Files.readAllBytes(path);
+        CacheSnapshotter snapshotter = newSnapshotter(path);
+
+        snapshotter.write();
+
+        verify(bookingCatalogService, never()).snapshot();
+        assertThat(Files.readAllBytes(path)).isEqualTo(before);
+    }
+
+    @Test
+    void writeAfterRestoreSavesCaches() {
+        Path path = dir.resolve("snapshot.bin");
+        when(bookingCatalogService.snapshot()).thenReturn(new CacheSnapshot(List.of()));
+        CacheSnapshotter snapshotter = newSnapshotter(path);
+
+        snapshotter.restore();
+        snapshotter.write();
+
+        assertThat(Files.exists(path)).isTrue();
+    }
+
+    private CacheSnapshotter newSnapshotter(Path path) {
+        return new CacheSnapshotter(bookingCatalogService, new SnapshotProps(true, path.toString(), Duration.ofMinutes(5)));
+    }
+}
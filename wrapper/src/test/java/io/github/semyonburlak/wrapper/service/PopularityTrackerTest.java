@@ -0,0 +1,37 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.wrapper.service.PopularityTracker.ServicePair;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityTrackerTest {
+
+    @Test
+    void topOrdersPairsByRequestCount() {
+        PopularityTracker tracker = new PopularityTracker();
+        for (int i = 0; i < 5; i++) {
+            tracker.record(1L, 10L);
+        }
+        for (int i = 0; i < 3; i++) {
+            tracker.record(2L, 20L);
+        }
+        tracker.record(3L, 30L);
+
+        assertThat(tracker.top(2)).containsExactly(new ServicePair(1L, 10L), new ServicePair(2L, 20L));
+    }
+
+    @Test
+    void candidateSetStaysBoundedAndKeepsHotPairs() {
+        PopularityTracker tracker = new PopularityTracker();
+        for (int i = 0; i < 50; i++) {
+            tracker.record(1L, 10L);
+        }
+        for (long companyId = 100; companyId < 2_000; companyId++) {
+            tracker.record(companyId, 1L);
+        }
+
+        assertThat(tracker.top(Integer.MAX_VALUE)).hasSizeLessThanOrEqualTo(256);
+        assertThat(tracker.top(1)).containsExactly(new ServicePair(1L, 10L));
+    }
+}
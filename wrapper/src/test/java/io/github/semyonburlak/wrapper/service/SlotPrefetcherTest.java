@@ -0,0 +1,102 @@
+package io.github.semyonburlak.wrapper.service;
+
+import io.github.semyonburlak.wrapper.client.FairScheduler;
+import io.github.semyonburlak.wrapper.config.PrefetchProps;
+import io.github.semyonburlak.wrapper.dto.SlotTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SlotPrefetcherTest {
+
+    @Mock
+    private BookingCatalogService bookingCatalogService;
+
+    @Mock
+    private FairScheduler scheduler;
+
+    private final PopularityTracker popularity = new PopularityTracker();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private SlotPrefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() {
+        PrefetchProps props = new PrefetchProps(
+                true, 2, Duration.ofMinutes(1), 0.2, Duration.ofDays(14), 2, Duration.ofSeconds(5));
+        prefetcher = new SlotPrefetcher(bookingCatalogService, popularity, scheduler, props, registry);
+        popularity.record(1L, 10L);
+        popularity.record(1L, 10L);
+        popularity.record(1L, 10L);
+        popularity.record(2L, 20L);
+        popularity.record(2L, 20L);
+        popularity.record(3L, 30L);
+    }
+
+    @Test
+    void prefetchesTopPairsOverTheHorizonWhenCapacityIsSpare() {
+        LocalDate today = LocalDate.now();
+        when(scheduler.hasSpareCapacity(2)).thenReturn(true);
+        when(bookingCatalogService.prefetchDates(anyLong(), anyLong(), any(), any()))
+                .thenReturn(List.of(today, today.plusDays(1)));
+        when(bookingCatalogService.prefetchTimes(anyLong(), anyLong(), any()))
+                .thenReturn(CompletableFuture.completedFuture(SlotTable.empty()));
+        prefetcher.start();
+
+        prefetcher.prefetchRound();
+        prefetcher.stop();
+
+        verify(bookingCatalogService).prefetchDates(1L, 10L, today, today.plusDays(14));
+        verify(bookingCatalogService).prefetchTimes(1L, 10L, today);
+        verify(bookingCatalogService).prefetchTimes(1L, 10L, today.plusDays(1));
+        verify(bookingCatalogService, never()).prefetchDates(eq(3L), anyLong(), any(), any());
+        assertThat(registry.get("dikidi.prefetch.pairs").tag("outcome", "warmed").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void stopsBetweenDatesOnceLiveTrafficNeedsThePermits() {
+        LocalDate today = LocalDate.now();
+        when(scheduler.hasSpareCapacity(2)).thenReturn(true, true, false);
+        when(bookingCatalogService.prefetchDates(anyLong(), anyLong(), any(), any()))
+                .thenReturn(List.of(today, today.plusDays(1), today.plusDays(2)));
+        when(bookingCatalogService.prefetchTimes(anyLong(), anyLong(), any()))
+                .thenReturn(CompletableFuture.completedFuture(SlotTable.empty()));
+        prefetcher.start();
+
+        prefetcher.prefetchRound();
+        prefetcher.stop();
+
+        verify(bookingCatalogService).prefetchTimes(1L, 10L, today);
+        verify(bookingCatalogService, never()).prefetchTimes(1L, 10L, today.plusDays(1));
+        verify(bookingCatalogService, never()).prefetchDates(eq(2L), anyLong(), any(), any());
+        assertThat(registry.get("dikidi.prefetch.pairs").tag("outcome", "skipped").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void skipsPairsWhileLiveTrafficNeedsThePermits() {
+        when(scheduler.hasSpareCapacity(2)).thenReturn(false);
+        prefetcher.start();
+
+        prefetcher.prefetchRound();
+        prefetcher.stop();
+
+        verify(bookingCatalogService, never()).prefetchDates(anyLong(), anyLong(), any(), any());
+        assertThat(registry.get("dikidi.prefetch.pairs").tag("outcome", "skipped").counter().count()).isEqualTo(2);
+    }
+}
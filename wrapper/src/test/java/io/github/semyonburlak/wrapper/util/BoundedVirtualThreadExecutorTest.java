@@ -0,0 +1,114 @@
+package io.github.semyonburlak.wrapper.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedVirtualThreadExecutorTest {
+
+    private final BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("test", 2);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void runsTasksOnVirtualThreads() {
+        boolean virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), executor).join();
+        assertThat(virtual).isTrue();
+    }
+
+    @Test
+    void inFlightTasksNeverExceedMaxConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<CompletableFuture<Void>> futures = IntStream.range(0, 20)
+                .mapToObj(_ -> CompletableFuture.runAsync(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(10);
+                    running.decrementAndGet();
+                }, executor))
+                .toList();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(peak.get()).isEqualTo(2);
+    }
+
+    @Test
+    void reportsQueuedAndActiveTasks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.active()).isEqualTo(2);
+        awaitQueued(3);
+
+        release.countDown();
+        awaitQueued(0);
+    }
+
+    @Test
+    void taskInterruptedWhileQueuedStillRunsSoItsFutureCompletes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> await(release));
+        }
+        CompletableFuture<Boolean> queuedTask = CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().isInterrupted(), executor);
+        awaitQueued(1);
+
+        Thread closer = Thread.ofVirtual().start(executor::close);
+        closer.interrupt();
+
+        assertThat(queuedTask.get(5, TimeUnit.SECONDS)).isTrue();
+        closer.join(5000);
+        assertThat(executor.queued()).isZero();
+    }
+
+    @Test
+    void rejectsNonPositiveConcurrency() {
+        assertThatThrownBy(() -> new BoundedVirtualThreadExecutor("bad", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.queued() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(executor.queued()).isEqualTo(expected);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
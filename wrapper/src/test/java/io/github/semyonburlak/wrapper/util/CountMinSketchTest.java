@@ -0,0 +1,41 @@
+package io.github.semyonburlak.wrapper.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimateNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(64);
+        for (long item = 0; item < 500; item++) {
+            for (int i = 0; i <= item % 7; i++) {
+                sketch.increment(item);
+            }
+        }
+
+        for (long item = 0; item < 500; item++) {
+            assertThat(sketch.estimate(item)).isGreaterThanOrEqualTo((int) (item % 7) + 1);
+        }
+    }
+
+    @Test
+    void heavyHitterStandsOutAndHalvingDecaysIt() {
+        CountMinSketch sketch = new CountMinSketch(1024);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(42L);
+            sketch.increment(i);
+        }
+
+        assertThat(sketch.estimate(42L)).isBetween(100, 102);
+        sketch.halve();
+        assertThat(sketch.estimate(42L)).isBetween(50, 51);
+    }
+
+    @Test
+    void widthMustBePowerOfTwo() {
+        assertThatThrownBy(() -> new CountMinSketch(100)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
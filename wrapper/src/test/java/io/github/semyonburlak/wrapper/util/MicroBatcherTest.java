@@ -0,0 +1,147 @@
+package io.github.semyonburlak.wrapper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class MicroBatcherTest {
+
+    private static final int BLOCKER = 0;
+
+    private final CountDownLatch blockerStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseBlocker = new CountDownLatch(1);
+
+    @Test
+    void itemsArrivingDuringALoadShareTheNextOne() throws Exception {
+        List<Set<Integer>> loads = new CopyOnWriteArrayList<>();
+        MicroBatcher<String, Integer, Set<Integer>> batcher = new MicroBatcher<>(
+                Duration.ofSeconds(5), 3, (_, items) -> {
+                    loads.add(Set.copyOf(items));
+                    blockOn(items);
+                    return Set.copyOf(items);
+                });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<Set<Integer>> blocker = startBlocker(batcher, executor);
+            List<CompletableFuture<Set<Integer>>> results = List.of(1, 2, 3).stream()
+                    .map(item -> CompletableFuture.supplyAsync(() -> batcher.submit("k", item), executor))
+                    .toList();
+
+            for (CompletableFuture<Set<Integer>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsExactlyInAnyOrder(1, 2, 3);
+            }
+            releaseBlocker.countDown();
+            assertThat(blocker.get(5, TimeUnit.SECONDS)).containsExactly(BLOCKER);
+        }
+        assertThat(loads).containsExactly(Set.of(BLOCKER), Set.of(1, 2, 3));
+        assertThat(batcher.pending()).isZero();
+    }
+
+    @Test
+    void loneItemIsLoadedWithoutWaitingForWindow() {
+        MicroBatcher<String, Integer, Set<Integer>> batcher = new MicroBatcher<>(
+                Duration.ofSeconds(30), 10, (_, items) -> Set.copyOf(items));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThat(batcher.submit("k", 1)).containsExactly(1));
+        assertThat(batcher.pending()).isZero();
+    }
+
+    @Test
+    void failedBatchIsRetriedPerCallerSoOnlyTheBadItemFails() throws Exception {
+        List<Set<Integer>> loads = new CopyOnWriteArrayList<>();
+        MicroBatcher<String, Integer, Set<Integer>> batcher = new MicroBatcher<>(
+                Duration.ofSeconds(5), 2, (_, items) -> {
+                    loads.add(Set.copyOf(items));
+                    blockOn(items);
+                    if (items.contains(2)) {
+                        throw new IllegalStateException("record 2 is not accessible");
+                    }
+                    return Set.copyOf(items);
+                });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<Set<Integer>> blocker = startBlocker(batcher, executor);
+            CompletableFuture<Set<Integer>> good = CompletableFuture.supplyAsync(() -> batcher.submit("k", 1), executor);
+            CompletableFuture<Set<Integer>> bad = CompletableFuture.supplyAsync(() -> batcher.submit("k", 2), executor);
+
+            assertThat(good.get(5, TimeUnit.SECONDS)).containsExactly(1);
+            assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            releaseBlocker.countDown();
+            blocker.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(loads).containsExactlyInAnyOrder(Set.of(BLOCKER), Set.of(1, 2), Set.of(1), Set.of(2));
+    }
+
+    @Test
+    void differentKeysAreLoadedSeparately() {
+        List<String> keys = new CopyOnWriteArrayList<>();
+        MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<>(
+                Duration.ZERO, 10, (key, items) -> {
+                    keys.add(key);
+                    return items.size();
+                });
+
+        batcher.submit("a", 1);
+        batcher.submit("b", 1);
+
+        assertThat(keys).containsExactly("a", "b");
+    }
+
+    @Test
+    void loadFailureIsRethrownToEveryCaller() throws Exception {
+        MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<>(
+                Duration.ofSeconds(5), 2, (_, _) -> {
+                    throw new IllegalStateException("upstream down");
+                });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> batcher.submit("k", 1), executor);
+            CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> batcher.submit("k", 2), executor);
+
+            assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(batcher.pending()).isZero();
+    }
+
+    @Test
+    void rejectsNonPositiveMaxSize() {
+        assertThatThrownBy(() -> new MicroBatcher<String, Integer, Integer>(Duration.ZERO, 0, (_, _) -> 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Starts a load of {@link #BLOCKER} that stays in flight until {@link #releaseBlocker} opens.
+     */
+    private CompletableFuture<Set<Integer>> startBlocker(
+            MicroBatcher<String, Integer, Set<Integer>> batcher, ExecutorService executor) throws InterruptedException {
+        CompletableFuture<Set<Integer>> blocker =
+                CompletableFuture.supplyAsync(() -> batcher.submit("k", BLOCKER), executor);
+        assertThat(blockerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        return blocker;
+    }
+
+    private void blockOn(Set<Integer> items) {
+        if (!items.contains(BLOCKER)) {
+            return;
+        }
+        blockerStarted.countDown();
+        try {
+            releaseBlocker.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
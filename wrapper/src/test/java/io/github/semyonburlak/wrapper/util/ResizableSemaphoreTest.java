@@ -0,0 +1,33 @@
+package io.github.semyonburlak.wrapper.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResizableSemaphoreTest {
+
+    @Test
+    void shrinkingBelowInUseBlocksUntilEnoughReleases() {
+        ResizableSemaphore semaphore = new ResizableSemaphore(3);
+        semaphore.acquireUninterruptibly(3);
+
+        semaphore.resize(1);
+        semaphore.release(2);
+
+        assertThat(semaphore.tryAcquire()).isFalse();
+        semaphore.release();
+        assertThat(semaphore.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void growingAddsPermits() {
+        ResizableSemaphore semaphore = new ResizableSemaphore(1);
+        semaphore.acquireUninterruptibly();
+
+        semaphore.resize(2);
+
+        assertThat(semaphore.tryAcquire()).isTrue();
+        assertThat(semaphore.inUse()).isEqualTo(2);
+        assertThat(semaphore.size()).isEqualTo(2);
+    }
+}
@@ -4,10 +4,16 @@ import io.github.semyonburlak.wrapper.dto.DikidiResult;
 import io.github.semyonburlak.wrapper.support.WrapperTestConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import tools.jackson.core.JacksonException;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class ResponseParserTest {
 
@@ -24,6 +30,10 @@ class ResponseParserTest {
         return mapper.readTree(jsonStr);
     }
 
+    private static byte[] bytes(String jsonStr) {
+        return jsonStr.getBytes(StandardCharsets.UTF_8);
+    }
+
     @Test
     void format1StringErrorReturnsFail() throws Exception {
         DikidiResult<String> result = parser.parse(
@@ -133,6 +143,99 @@ class ResponseParserTest {
         assertThat(result.error().code()).isEqualTo("DATA_PARSE_ERROR");
     }
 
+    @Test
+    void streamingErrorObjectSuccessBindsDataField() {
+        String jsonStr = "{\"error\": {\"code\": 0}, \"meta\": {\"x\": [1, 2]},"
+                + " \"data\": {\"masters\": {\"1\": {\"id\": 1, \"username\": \"Alice\"}},"
+                + " \"times\": {\"1\": [\"2024-01-15 10:00:00\"]}}}";
+        DikidiResult<SlotsDto> result = parser.parseBody(bytes(jsonStr), SlotsDto.class);
+        assertThat(result.success()).isTrue();
+        assertThat(result.data().masters()).containsKey("1");
+        assertThat(result.data().times().get("1")).containsExactly("2024-01-15 10:00:00");
+    }
+
+    @Test
+    void streamingErrorObjectWithCodeReturnsFail() {
+        String jsonStr = "{\"error\": {\"code\": \"USER_AUTHORISATION_ERROR\", \"message\": \"bad auth\"},"
+                + " \"data\": {\"ignored\": true}}";
+        DikidiResult<String> result = parser.parseBody(bytes(jsonStr), String.class);
+        assertThat(result.success()).isFalse();
+        assertThat(result.error().code()).isEqualTo("USER_AUTHORISATION_ERROR");
+        assertThat(result.error().message()).isEqualTo("bad auth");
+    }
+
+    @Test
+    void streamingErrorObjectWithoutDataMatchesTreeParser() throws Exception {
+        String jsonStr = "{\"error\": {\"code\": 0}}";
+        DikidiResult<StrictDto> streamed = parser.parseBody(bytes(jsonStr), StrictDto.class);
+        DikidiResult<StrictDto> tree = parser.parse(json(jsonStr), StrictDto.class);
+        assertThat(streamed).isEqualTo(tree);
+    }
+
+    @Test
+    void streamingScalarErrorFindsTrailingMessage() {
+        String jsonStr = "{\"error\": \"COMPANY_ERROR\", \"extra\": [{\"a\": 1}], \"message\": \"not found\"}";
+        DikidiResult<String> result = parser.parseBody(bytes(jsonStr), String.class);
+        assertThat(result.success()).isFalse();
+        assertThat(result.error().code()).isEqualTo("COMPANY_ERROR");
+        assertThat(result.error().message()).isEqualTo("not found");
+    }
+
+    @Test
+    void streamingBooleanTrueWithoutMessageReturnsNoMessage() {
+        DikidiResult<String> result = parser.parseBody(bytes("{\"error\": true}"), String.class);
+        assertThat(result.success()).isFalse();
+        assertThat(result.error().code()).isEqualTo("1");
+        assertThat(result.error().message()).isEqualTo("No message");
+    }
+
+    @Test
+    void streamingScalarErrorZeroBindsRemainingRoot() {
+        String jsonStr = "{\"error\": 0, \"name\": \"Hair\", \"value\": 3}";
+        DikidiResult<StrictDto> result = parser.parseBody(bytes(jsonStr), StrictDto.class);
+        assertThat(result.success()).isTrue();
+        assertThat(result.data()).isEqualTo(new StrictDto("Hair", 3));
+    }
+
+    @Test
+    void streamingWithoutLeadingErrorFallsBackToTree() {
+        String jsonStr = "{\"message\": \"not found\", \"error\": \"COMPANY_ERROR\"}";
+        DikidiResult<String> result = parser.parseBody(bytes(jsonStr), String.class);
+        assertThat(result.success()).isFalse();
+        assertThat(result.error().code()).isEqualTo("COMPANY_ERROR");
+        assertThat(result.error().message()).isEqualTo("not found");
+    }
+
+    @Test
+    void streamingNoErrorFieldBindsRoot() {
+        DikidiResult<StrictDto> result = parser.parseBody(bytes("{\"name\": \"Cut\", \"value\": 1}"), StrictDto.class);
+        assertThat(result.success()).isTrue();
+        assertThat(result.data()).isEqualTo(new StrictDto("Cut", 1));
+    }
+
+    @Test
+    void streamingEmptyBodyReturnsNullRootFail() {
+        assertThat(parser.parseBody(new byte[0], String.class).error().code()).isEqualTo("NULL_ROOT");
+        assertThat(parser.parseBody(null, String.class).error().code()).isEqualTo("NULL_ROOT");
+    }
+
+    @Test
+    void streamingIncompatibleDataReturnsDataParseError() {
+        String jsonStr = "{\"error\": {\"code\": 0}, \"data\": [1, 2, 3]}";
+        DikidiResult<StrictDto> result = parser.parseBody(bytes(jsonStr), StrictDto.class);
+        assertThat(result.success()).isFalse();
+        assertThat(result.error().code()).isEqualTo("DATA_PARSE_ERROR");
+    }
+
+    @Test
+    void streamingMalformedBodyThrows() {
+        assertThatThrownBy(() -> parser.parseBody(bytes("{\"error\": {\"code\": 0}, \"data\": {"), StrictDto.class))
+                .isInstanceOf(JacksonException.class);
+    }
+
     record StrictDto(String name, int value) {
     }
+
+    record SlotsDto(Map<String, Map<String, Object>> masters, Map<String, List<String>> times) {
+    }
 }
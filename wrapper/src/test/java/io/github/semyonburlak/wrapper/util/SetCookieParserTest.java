@@ -0,0 +1,65 @@
+package io.github.semyonburlak.wrapper.util;
+
+import io.github.semyonburlak.dto.DikidiCookie;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SetCookieParserTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    @Test
+    void maxAgeIsCountedFromNow() {
+        DikidiCookie cookie = SetCookieParser.parse("token=abc; Max-Age=3600; Path=/", NOW);
+
+        assertThat(cookie.value()).isEqualTo("token=abc; Max-Age=3600; Path=/");
+        assertThat(cookie.expiresAt()).isEqualTo(NOW.plusSeconds(3600));
+    }
+
+    @Test
+    void maxAgeWinsOverExpires() {
+        DikidiCookie cookie = SetCookieParser.parse(
+                "token=abc; expires=Sat, 17 Oct 2026 13:00:00 GMT; max-age=60", NOW);
+
+        assertThat(cookie.expiresAt()).isEqualTo(NOW.plusSeconds(60));
+    }
+
+    @Test
+    void expiresAcceptsRfc1123AndDashedDates() {
+        assertThat(SetCookieParser.parse("token=abc; Expires=Sat, 17 Oct 2026 13:00:00 GMT", NOW).expiresAt())
+                .isEqualTo(Instant.parse("2026-10-17T13:00:00Z"));
+        assertThat(SetCookieParser.parse("token=abc; expires=Sat, 17-Oct-2026 13:00:00 GMT; path=/", NOW)
+                .expiresAt())
+                .isEqualTo(Instant.parse("2026-10-17T13:00:00Z"));
+    }
+
+    @Test
+    void nonPositiveMaxAgeExpiresImmediately() {
+        assertThat(SetCookieParser.parse("token=abc; Max-Age=0", NOW).expiresAt()).isEqualTo(NOW);
+    }
+
+    @Test
+    void sessionCookieAndUnreadableDateHaveNoExpiry() {
+        assertThat(SetCookieParser.parse("token=abc; Path=/", NOW).expiresAt()).isNull();
+        assertThat(SetCookieParser.parse("token=abc; Expires=tomorrow", NOW).expiresAt()).isNull();
+    }
+
+    @Test
+    void withRemainingMaxAgeCountsDown() {
+        DikidiCookie cookie = SetCookieParser.parse("token=abc; Max-Age=3600; Path=/", NOW);
+
+        assertThat(SetCookieParser.withRemainingMaxAge(cookie, NOW.plusSeconds(600)))
+                .isEqualTo("token=abc; Max-Age=3000; Path=/");
+    }
+
+    @Test
+    void withRemainingMaxAgeLeavesExpiresOnlyHeaderUntouched() {
+        DikidiCookie cookie = SetCookieParser.parse("token=abc; Expires=Sat, 17 Oct 2026 13:00:00 GMT", NOW);
+
+        assertThat(SetCookieParser.withRemainingMaxAge(cookie, NOW.plusSeconds(600)))
+                .isEqualTo("token=abc; Expires=Sat, 17 Oct 2026 13:00:00 GMT");
+    }
+}
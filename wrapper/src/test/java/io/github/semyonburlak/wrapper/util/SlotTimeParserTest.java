@@ -0,0 +1,62 @@
+package io.github.semyonburlak.wrapper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlotTimeParserTest {
+
+    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Test
+    void parseEpochMinuteMatchesFormatterAcrossCalendar() {
+        for (LocalDate date = LocalDate.of(1999, 12, 25); date.getYear() < 2031; date = date.plusDays(1)) {
+            LocalDateTime dateTime = date.atTime(date.getDayOfYear() % 24, date.getDayOfMonth() * 59 % 60);
+            String text = SLOT_FORMAT.format(dateTime);
+
+            assertThat(SlotTimeParser.parseEpochMinute(text))
+                    .as(text)
+                    .isEqualTo(dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+            assertThat(SlotTimeParser.parseDate(date.toString())).isEqualTo(date);
+        }
+    }
+
+    @Test
+    void parseEpochMinuteDropsSeconds() {
+        assertThat(SlotTimeParser.parseEpochMinute("2024-01-15 10:00:59"))
+                .isEqualTo(SlotTimeParser.parseEpochMinute("2024-01-15 10:00:00"));
+    }
+
+    @Test
+    void outOfRangeDayFallsBackToFormatterResolution() {
+        assertThat(SlotTimeParser.parseEpochMinute("2023-02-29 10:00:00"))
+                .isEqualTo(LocalDateTime.parse("2023-02-29 10:00:00", SLOT_FORMAT).toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    @Test
+    void malformedDateTimeThrowsParseException() {
+        for (String text : List.of("2024-01-15T10:00:00", "2024-01-15 10:60:00", "2024-13-01 10:00:00",
+                "20a4-01-15 10:00:00", "2024-01-15 10:00", "")) {
+            assertThatThrownBy(() -> SlotTimeParser.parseEpochMinute(text))
+                    .as(text)
+                    .isInstanceOf(DateTimeParseException.class);
+        }
+    }
+
+    @Test
+    void malformedDateThrowsParseException() {
+        for (String text : List.of("2024-02-30", "2024-1-15", "2024/01/15", "x")) {
+            assertThatThrownBy(() -> SlotTimeParser.parseDate(text))
+                    .as(text)
+                    .isInstanceOf(DateTimeParseException.class);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.semyonburlak.wrapper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WindowedFanOutTest {
+
+    @Test
+    void keepsAtMostWindowCallsInFlightAndPreservesOrder() throws Exception {
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+        List<Integer> items = IntStream.range(0, 10).boxed().toList();
+
+        CompletableFuture<List<Integer>> result = new WindowedFanOut(3).map(items, item -> {
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            started.add(call);
+            return call;
+        });
+
+        assertThat(started).hasSize(3);
+        for (int i = 0; i < items.size(); i++) {
+            started.get(i).complete(i * 10);
+            assertThat(started).hasSize(Math.min(items.size(), i + 4));
+        }
+        assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly(0, 10, 20, 30, 40, 50, 60, 70, 80, 90);
+    }
+
+    @Test
+    void synchronousCallsRunThroughWholeList() {
+        List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+
+        List<Integer> result = new WindowedFanOut(2).map(items, CompletableFuture::completedFuture).join();
+
+        assertThat(result).isEqualTo(items);
+    }
+
+    @Test
+    void emptyListCompletesImmediately() {
+        assertThat(new WindowedFanOut(4).map(List.of(), CompletableFuture::completedFuture).join()).isEmpty();
+    }
+
+    @Test
+    void firstFailureStopsLaunchingAndCancelsInFlight() {
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+
+        CompletableFuture<List<Integer>> result = new WindowedFanOut(2).map(List.of(1, 2, 3, 4), item -> {
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            started.add(call);
+            return call;
+        });
+        started.getFirst().completeExceptionally(new IllegalStateException("boom"));
+
+        assertThatThrownBy(result::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(started).hasSize(2);
+        assertThat(started.get(1)).isCancelled();
+    }
+
+    @Test
+    void cancellingForEachStopsRemainingItems() {
+        List<CompletableFuture<Void>> started = new ArrayList<>();
+
+        CompletableFuture<Void> done = new WindowedFanOut(1).forEach(List.of(1, 2, 3), item -> {
+            CompletableFuture<Void> call = new CompletableFuture<>();
+            started.add(call);
+            return call;
+        });
+        done.cancel(false);
+        started.getFirst().complete(null);
+
+        assertThat(started).hasSize(1);
+        assertThat(started.getFirst()).isDone();
+    }
+
+    @Test
+    void cancellingForEachCancelsCallsInFlight() {
+        CompletableFuture<Void> call = new CompletableFuture<>();
+
+        new WindowedFanOut(1).forEach(List.of(1), _ -> call).cancel(false);
+
+        assertThat(call).isCancelled();
+    }
+
+    @Test
+    void inFlightCountsOutstandingCallsAcrossRuns() {
+        WindowedFanOut fanOut = new WindowedFanOut(2);
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+
+        fanOut.map(List.of(1, 2, 3), item -> {
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            started.add(call);
+            return call;
+        });
+        fanOut.map(List.of(4), item -> {
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            started.add(call);
+            return call;
+        });
+
+        assertThat(fanOut.inFlight()).isEqualTo(3);
+        for (int i = 0; i < started.size(); i++) {
+            started.get(i).complete(0);
+        }
+        assertThat(started).hasSize(4);
+        assertThat(fanOut.inFlight()).isZero();
+    }
+
+    @Test
+    void rejectsNonPositiveWindow() {
+        assertThatThrownBy(() -> new WindowedFanOut(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}